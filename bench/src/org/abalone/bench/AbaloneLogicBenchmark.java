@@ -0,0 +1,32 @@
+package org.abalone.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.abalone.client.AbaloneLogic;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link AbaloneLogic#verify} of one legal move per corpus position.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AbaloneLogicBenchmark {
+  private final MidgameCorpus corpus = new MidgameCorpus();
+  private final AbaloneLogic abaloneLogic = new AbaloneLogic();
+
+  @Benchmark
+  @OperationsPerInvocation(MidgameCorpus.SIZE)
+  public void verify(Blackhole blackhole) {
+    for (int i = 0; i < MidgameCorpus.SIZE; i++) {
+      blackhole.consume(abaloneLogic.verify(corpus.verifyMoves[i]));
+    }
+  }
+}
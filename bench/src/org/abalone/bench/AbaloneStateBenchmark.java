@@ -0,0 +1,31 @@
+package org.abalone.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link org.abalone.client.AbaloneState#applyJumpOnBoard} over the corpus, one operation per
+ * position.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AbaloneStateBenchmark {
+  private final MidgameCorpus corpus = new MidgameCorpus();
+
+  @Benchmark
+  @OperationsPerInvocation(MidgameCorpus.SIZE)
+  public void applyJumpOnBoard(Blackhole blackhole) {
+    for (int i = 0; i < MidgameCorpus.SIZE; i++) {
+      blackhole.consume(corpus.states[i].applyJumpOnBoard(corpus.jumps.get(i)));
+    }
+  }
+}
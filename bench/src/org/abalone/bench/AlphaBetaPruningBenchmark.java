@@ -0,0 +1,55 @@
+package org.abalone.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.abalone.ai.AlphaBetaPruning;
+import org.abalone.ai.DateTimer;
+import org.abalone.ai.HeuristicImpl;
+import org.abalone.ai.TranspositionTable;
+import org.abalone.ai.TranspositionTable.ReplacementPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link AlphaBetaPruning#findBestMove} at a fixed depth and without timeout, on the first
+ * {@link #POSITIONS} positions of the corpus. The transposition table is cleared before each
+ * invocation so that every invocation searches the same trees.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AlphaBetaPruningBenchmark {
+  private static final int POSITIONS = 8;
+
+  @Param({"2", "3", "4"})
+  public int depth;
+
+  private final MidgameCorpus corpus = new MidgameCorpus();
+  private final TranspositionTable transpositionTable =
+      new TranspositionTable(18, ReplacementPolicy.DEPTH_PREFERRED);
+  private final AlphaBetaPruning alphaBetaPruning =
+      new AlphaBetaPruning(new HeuristicImpl(), transpositionTable);
+
+  @Setup(Level.Invocation)
+  public void clearTable() {
+    transpositionTable.clear();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(POSITIONS)
+  public void findBestMove(Blackhole blackhole) {
+    for (int i = 0; i < POSITIONS; i++) {
+      blackhole.consume(
+          alphaBetaPruning.findBestMove(corpus.states[i], depth, new DateTimer(-1)));
+    }
+  }
+}
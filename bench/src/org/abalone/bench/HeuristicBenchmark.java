@@ -0,0 +1,81 @@
+package org.abalone.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.abalone.ai.Heuristic;
+import org.abalone.ai.HeuristicImpl;
+import org.abalone.ai.MoveBuffer;
+import org.abalone.ai.PositionalHeuristic;
+import org.abalone.ai.SearchBoard;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link HeuristicImpl} over the corpus, one operation per position: the {@code AbalonePosition}
+ * methods (which build jump lists) and the {@link SearchBoard} ones used by the search. The leaf
+ * evaluation is compared with {@link PositionalHeuristic}'s, which reads the terms the board keeps.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class HeuristicBenchmark {
+  private final MidgameCorpus corpus = new MidgameCorpus();
+  private final Heuristic heuristic = new HeuristicImpl();
+  private final Heuristic positionalHeuristic = new PositionalHeuristic();
+  private final SearchBoard[] boards = new SearchBoard[MidgameCorpus.SIZE];
+  private final int[] moves = new int[MoveBuffer.MAX_MOVES];
+
+  @Setup
+  public void setUp() {
+    for (int i = 0; i < MidgameCorpus.SIZE; i++) {
+      boards[i] = new SearchBoard(corpus.positions[i], 1);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(MidgameCorpus.SIZE)
+  public void getOrderedMoves(Blackhole blackhole) {
+    for (int i = 0; i < MidgameCorpus.SIZE; i++) {
+      blackhole.consume(heuristic.getOrderedMoves(corpus.positions[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(MidgameCorpus.SIZE)
+  public void getStateValue(Blackhole blackhole) {
+    for (int i = 0; i < MidgameCorpus.SIZE; i++) {
+      blackhole.consume(heuristic.getStateValue(corpus.positions[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(MidgameCorpus.SIZE)
+  public void getOrderedMovesSearchBoard(Blackhole blackhole) {
+    for (int i = 0; i < MidgameCorpus.SIZE; i++) {
+      blackhole.consume(heuristic.getOrderedMoves(boards[i], moves));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(MidgameCorpus.SIZE)
+  public void getStateValueSearchBoard(Blackhole blackhole) {
+    for (int i = 0; i < MidgameCorpus.SIZE; i++) {
+      blackhole.consume(heuristic.getStateValue(boards[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(MidgameCorpus.SIZE)
+  public void getPositionalStateValueSearchBoard(Blackhole blackhole) {
+    for (int i = 0; i < MidgameCorpus.SIZE; i++) {
+      blackhole.consume(positionalHeuristic.getStateValue(boards[i]));
+    }
+  }
+}
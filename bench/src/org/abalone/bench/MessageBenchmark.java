@@ -0,0 +1,36 @@
+package org.abalone.bench;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.game_api.GameApi.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Round-trips of the corpus {@code VerifyMove}s through their message maps.<br>
+ * {@code GameApiJsonHelper} itself builds {@code com.google.gwt.json.client} objects, which are
+ * JSNI and only run in the browser, so this measures the JVM part of the round-trip it wraps:
+ * {@link Message#toMessage()} and {@link Message#messageToHasEquality(Map)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MessageBenchmark {
+  private final MidgameCorpus corpus = new MidgameCorpus();
+
+  @Benchmark
+  @OperationsPerInvocation(MidgameCorpus.SIZE)
+  public void roundTrip(Blackhole blackhole) {
+    for (int i = 0; i < MidgameCorpus.SIZE; i++) {
+      Map<String, Object> message = corpus.verifyMoves[i].toMessage();
+      blackhole.consume(Message.messageToHasEquality(message));
+    }
+  }
+}
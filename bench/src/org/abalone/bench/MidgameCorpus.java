@@ -0,0 +1,105 @@
+package org.abalone.bench;
+
+import static org.abalone.client.AbaloneConstants.BOARD;
+import static org.abalone.client.AbaloneConstants.JUMP;
+import static org.abalone.client.AbaloneConstants.WTurn;
+import static org.abalone.client.AbaloneConstants.initialBoard;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.abalone.client.AbaloneMove;
+import org.abalone.client.AbalonePosition;
+import org.abalone.client.AbaloneState;
+import org.abalone.client.MoveGenerator;
+import org.game_api.GameApi;
+import org.game_api.GameApi.Operation;
+import org.game_api.GameApi.Set;
+import org.game_api.GameApi.SetTurn;
+import org.game_api.GameApi.VerifyMove;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Midgame positions shared by the benchmarks, reached by playing random legal moves from the
+ * initial board with a fixed seed, so every run measures the same positions. For each position
+ * the corpus also keeps one more random move, as jumps and as the {@link VerifyMove} the server
+ * would check for it.
+ */
+final class MidgameCorpus {
+  static final int SIZE = 64;
+  static final List<String> PLAYER_IDS =
+      Collections.unmodifiableList(Lists.newArrayList("42", "43"));
+
+  private static final long SEED = 0xABA1011EL;
+  private static final int MIN_PLIES = 20;
+  private static final int MAX_PLIES = 40;
+
+  final AbalonePosition[] positions = new AbalonePosition[SIZE];
+  final AbaloneState[] states = new AbaloneState[SIZE];
+  final List<ArrayList<ArrayList<Integer>>> jumps = Lists.newArrayList();
+  final VerifyMove[] verifyMoves = new VerifyMove[SIZE];
+
+  MidgameCorpus() {
+    Random random = new Random(SEED);
+    int[] moves = new int[MoveGenerator.MAX_MOVES];
+    AbalonePosition start = AbalonePosition.fromState(new AbaloneState(WTurn, PLAYER_IDS,
+        initialBoard, Lists.<ArrayList<Integer>>newArrayList(), null));
+    for (int i = 0; i < SIZE; i++) {
+      AbalonePosition position = start;
+      ArrayList<ArrayList<Integer>> lastJumps = Lists.newArrayList();
+      int plies = MIN_PLIES + random.nextInt(MAX_PLIES - MIN_PLIES + 1);
+      for (int ply = 0; ply < plies; ply++) {
+        lastJumps = randomJumps(position, random, moves);
+        position = position.applyJumps(lastJumps);
+      }
+      positions[i] = position;
+      states[i] = position.toState(PLAYER_IDS, lastJumps);
+      ArrayList<ArrayList<Integer>> next = randomJumps(position, random, moves);
+      jumps.add(next);
+      verifyMoves[i] = toVerifyMove(position, lastJumps, next);
+    }
+  }
+
+  /**
+   * @return the jumps of a random move of {@code position} which does not end the game.
+   */
+  private static ArrayList<ArrayList<Integer>> randomJumps(AbalonePosition position,
+      Random random, int[] moves) {
+    int count = MoveGenerator.generateMoves(position.getMine(), position.getOpponent(), moves);
+    while (true) {
+      int move = moves[random.nextInt(count)];
+      if (!AbaloneMove.isEjecting(move)) {
+        return AbaloneMove.toJumps(move, position.isWhiteTurn());
+      }
+    }
+  }
+
+  private static VerifyMove toVerifyMove(AbalonePosition position,
+      ArrayList<ArrayList<Integer>> lastJumps, ArrayList<ArrayList<Integer>> next) {
+    String moverId = PLAYER_IDS.get(position.isWhiteTurn() ? 0 : 1);
+    String nextId = PLAYER_IDS.get(position.isWhiteTurn() ? 1 : 0);
+    List<ArrayList<String>> boardAfter = position.applyJumps(next).toBoard();
+    Map<String, Object> lastState = Maps.newHashMap();
+    lastState.put(BOARD, position.toBoard());
+    lastState.put(JUMP, lastJumps);
+    Map<String, Object> state = Maps.newHashMap();
+    state.put(BOARD, boardAfter);
+    state.put(JUMP, next);
+    List<Operation> lastMove = Lists.<Operation>newArrayList(
+        new SetTurn(nextId),
+        new Set(BOARD, boardAfter),
+        new Set(JUMP, next));
+    List<Map<String, Object>> playersInfo = Lists.newArrayList();
+    for (String playerId : PLAYER_IDS) {
+      playersInfo.add(ImmutableMap.<String, Object>of(GameApi.PLAYER_ID, playerId));
+    }
+    return new VerifyMove(playersInfo, state, lastState, lastMove, moverId,
+        ImmutableMap.<String, Integer>of());
+  }
+}
@@ -0,0 +1,205 @@
+package org.abalone.ai;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.abalone.client.AbaloneConstants;
+import org.abalone.client.AbaloneGeometry;
+import org.abalone.client.AbalonePosition;
+import org.abalone.client.AbaloneState;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+
+/**
+ * A compact binary form of {@link AbaloneState}, for storing and sending many states: about 30
+ * bytes instead of the 11 * 19 strings of the board. It lives with the server-side code, since
+ * {@link ByteBuffer} is not available on the client.<br>
+ * The player ids are not encoded, they are given back to {@link #decode}. The layout of version
+ * {@link #VERSION} is:
+ * <pre>
+ * byte version
+ * byte flags             (see the FLAG_ constants)
+ * byte ejected square    (x * BoardColNum + y of the piece on a score square, 0 if none)
+ * long, long cells       (2 bits per cell, cell c at bit 2c of cells 0-31 then 32-60:
+ *                         0 empty, 1 white, 2 black)
+ * byte jump count
+ * short jumps            (start cell << 4 | direction << 1 | color, 0 for white, 1 for black)
+ * </pre>
+ * A jump is always one step in a direction, onto a playable square or, for a push out of the
+ * board, onto the score square next to it. {@link #encode} writes into the caller's buffer
+ * without allocating.
+ */
+public final class AbaloneStateCodec {
+  public static final byte VERSION = 1;
+  /** A move has at most 3 own and 2 opponent pieces. */
+  public static final int MAX_JUMPS = 5;
+  public static final int MAX_ENCODED_BYTES = 3 + 16 + 1 + 2 * MAX_JUMPS;
+
+  static final int FLAG_BLACK_TURN = 1;
+  static final int FLAG_GAME_END_KNOWN = 1 << 1;
+  static final int FLAG_GAME_END = 1 << 2;
+  static final int FLAG_EJECTED = 1 << 3;
+  static final int FLAG_EJECTED_WHITE = 1 << 4;
+
+  private static final int EMPTY = 0;
+  private static final int WHITE = 1;
+  private static final int BLACK = 2;
+  private static final int HALF_CELLS = 32;
+  // The code of a jump fits in 10 bits (a cell below 64, a direction and a color), so those of
+  // all MAX_JUMPS jumps fit in a long.
+  private static final int JUMP_CODE_BITS = 10;
+  private static final int JUMP_CODE_MASK = (1 << JUMP_CODE_BITS) - 1;
+
+  private AbaloneStateCodec() { }
+
+  /**
+   * @return the number of bytes {@link #encode} writes for {@code state}.
+   */
+  public static int getEncodedSize(AbaloneState state) {
+    return 3 + 16 + 1 + 2 * state.getJump().size();
+  }
+
+  /**
+   * Writes {@code state} at the position of {@code buffer}, and advances it.
+   * Nothing is written when it throws.
+   * @throws IllegalArgumentException if the state has more than {@link #MAX_JUMPS} jumps, a jump
+   * that is not a step, or more than one piece on the score squares.
+   * @throws BufferOverflowException if {@code buffer} has less than {@link #getEncodedSize}
+   * bytes remaining.
+   */
+  public static void encode(AbaloneState state, ByteBuffer buffer) {
+    List<ArrayList<String>> board = state.getBoard();
+    List<ArrayList<Integer>> jumps = state.getJump();
+    if (jumps.size() > MAX_JUMPS) {
+      throw new IllegalArgumentException("At most " + MAX_JUMPS + " jumps can be encoded");
+    }
+    int flags = state.getTurn().equals(AbaloneConstants.WTurn) ? 0 : FLAG_BLACK_TURN;
+    Optional<Boolean> isGameEnd = state.getIsGameEnd();
+    if (isGameEnd != null && isGameEnd.isPresent()) {
+      flags |= FLAG_GAME_END_KNOWN | (isGameEnd.get() ? FLAG_GAME_END : 0);
+    }
+    int ejectedSquare = 0;
+    for (int i = 0; i < AbaloneGeometry.getScoreSquareCount(); i++) {
+      int square = AbaloneGeometry.getScoreSquare(i);
+      int piece = getPiece(board, square / AbaloneConstants.BoardColNum,
+          square % AbaloneConstants.BoardColNum);
+      if (piece == EMPTY) {
+        continue;
+      }
+      if ((flags & FLAG_EJECTED) != 0) {
+        throw new IllegalArgumentException("Only one piece can be on the score squares");
+      }
+      flags |= FLAG_EJECTED | (piece == WHITE ? FLAG_EJECTED_WHITE : 0);
+      ejectedSquare = square;
+    }
+    long low = 0;
+    long high = 0;
+    for (int cell = 0; cell < AbaloneGeometry.CELL_NUM; cell++) {
+      long piece = getPiece(board, AbaloneGeometry.cellX(cell), AbaloneGeometry.cellY(cell));
+      if (cell < HALF_CELLS) {
+        low |= piece << (2 * cell);
+      } else {
+        high |= piece << (2 * (cell - HALF_CELLS));
+      }
+    }
+
+    // Everything is checked before the first put, so that a state that can not be encoded
+    // leaves the buffer as it was.
+    long jumpCodes = 0;
+    for (int i = 0; i < jumps.size(); i++) {
+      jumpCodes |= (long) encodeJump(jumps.get(i)) << (JUMP_CODE_BITS * i);
+    }
+    if (buffer.remaining() < getEncodedSize(state)) {
+      throw new BufferOverflowException();
+    }
+
+    buffer.put(VERSION);
+    buffer.put((byte) flags);
+    buffer.put((byte) ejectedSquare);
+    buffer.putLong(low);
+    buffer.putLong(high);
+    buffer.put((byte) jumps.size());
+    for (int i = 0; i < jumps.size(); i++) {
+      buffer.putShort((short) (jumpCodes >>> (JUMP_CODE_BITS * i) & JUMP_CODE_MASK));
+    }
+  }
+
+  private static int getPiece(List<ArrayList<String>> board, int x, int y) {
+    String square = board.get(x).get(y);
+    return square.equals(AbaloneConstants.W) ? WHITE
+        : square.equals(AbaloneConstants.B) ? BLACK : EMPTY;
+  }
+
+  private static int encodeJump(List<Integer> jump) {
+    int direction =
+        AbaloneGeometry.stepDirection(jump.get(0), jump.get(1), jump.get(2), jump.get(3));
+    if (direction < 0) {
+      throw new IllegalArgumentException("The jump " + jump + " is not a step");
+    }
+    int start = AbaloneGeometry.cellIndex(jump.get(0), jump.get(1));
+    return start << 4 | direction << 1 | (jump.get(4) == 0 ? 0 : 1);
+  }
+
+  /**
+   * Reads a state written by {@link #encode} at the position of {@code buffer}, and advances it.
+   * @throws IllegalArgumentException if the data is of another version.
+   */
+  public static AbaloneState decode(ByteBuffer buffer, List<String> playerIds) {
+    byte version = buffer.get();
+    if (version != VERSION) {
+      throw new IllegalArgumentException("Unknown state version " + version + ", expected "
+          + VERSION);
+    }
+    int flags = buffer.get();
+    int ejectedSquare = buffer.get() & 0xFF;
+    long low = buffer.getLong();
+    long high = buffer.getLong();
+    long white = 0;
+    long black = 0;
+    for (int cell = 0; cell < AbaloneGeometry.CELL_NUM; cell++) {
+      long piece = cell < HALF_CELLS
+          ? low >>> (2 * cell) & 3 : high >>> (2 * (cell - HALF_CELLS)) & 3;
+      if (piece == WHITE) {
+        white |= 1L << cell;
+      } else if (piece == BLACK) {
+        black |= 1L << cell;
+      }
+    }
+    boolean whiteTurn = (flags & FLAG_BLACK_TURN) == 0;
+    AbalonePosition position = (flags & FLAG_EJECTED) == 0
+        ? new AbalonePosition(white, black, whiteTurn)
+        : new AbalonePosition(white, black, whiteTurn, ejectedSquare,
+            (flags & FLAG_EJECTED_WHITE) != 0);
+
+    int jumpCount = buffer.get();
+    List<ArrayList<Integer>> jumps = Lists.newArrayListWithCapacity(jumpCount);
+    for (int i = 0; i < jumpCount; i++) {
+      jumps.add(decodeJump(buffer.getShort()));
+    }
+    Optional<Boolean> isGameEnd = (flags & FLAG_GAME_END_KNOWN) == 0
+        ? null : Optional.of((flags & FLAG_GAME_END) != 0);
+    return new AbaloneState(whiteTurn ? AbaloneConstants.WTurn : AbaloneConstants.BTurn,
+        playerIds, position.toBoard(), jumps, isGameEnd);
+  }
+
+  private static ArrayList<Integer> decodeJump(int code) {
+    int start = code >> 4;
+    int direction = code >> 1 & 7;
+    int end = AbaloneGeometry.neighbor(start, direction);
+    int endX;
+    int endY;
+    if (end == AbaloneGeometry.NO_CELL) {
+      int square = AbaloneGeometry.ejectSquare(start, direction);
+      endX = square / AbaloneConstants.BoardColNum;
+      endY = square % AbaloneConstants.BoardColNum;
+    } else {
+      endX = AbaloneGeometry.cellX(end);
+      endY = AbaloneGeometry.cellY(end);
+    }
+    return Lists.newArrayList(AbaloneGeometry.cellX(start), AbaloneGeometry.cellY(start), endX,
+        endY, code & 1);
+  }
+}
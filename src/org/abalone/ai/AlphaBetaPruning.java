@@ -16,13 +16,18 @@
 package org.abalone.ai;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.abalone.client.AbaloneConstants;
+import org.abalone.ai.TranspositionTable.ReplacementPolicy;
+import org.abalone.client.AbaloneMove;
+import org.abalone.client.AbalonePosition;
 import org.abalone.client.AbaloneState;
 
-import com.google.common.base.Optional;
 import com.google.common.collect.Lists;
 
 /**
@@ -31,8 +36,20 @@ import com.google.common.collect.Lists;
  * The set of possible moves is maintained ordered by the current heuristic value of each move. We
  * first use depth=1, and update the heuristic value of each move, then use depth=2, and so on until
  * we get a timeout or reach maximum depth. <br>
- * If a state has {@link TurnBasedState#whoseTurn} null (which happens in backgammon when we should
- * roll the dice), then I treat all the possible moves with equal probabilities. <br>
+ * The search makes and unmakes {@link AbaloneMove}s on a single {@link SearchBoard}, and reuses one
+ * move list per ply, so visiting a node does not allocate. {@link AbaloneState} is only converted
+ * at the root. <br>
+ * Positions already searched (reached through another move order, or in the previous iteration)
+ * are looked up in a {@link TranspositionTable}, which also gives the move to try first. <br>
+ * The leaves are not evaluated while a push is possible: a quiescence search plays the pushes
+ * until the position is quiet (see {@link SearchOptions}). <br>
+ * Given a {@link ForkJoinPool}, the root is split between the pool threads: the first root move is
+ * searched alone (young brothers wait), then all the others in parallel, sharing the best score
+ * found so far as their alpha. Both modes return the same move for a fixed depth. <br>
+ * The {@link Timer} is told about each finished iteration, and decides whether to start the next
+ * one (see {@link TimeManager}). <br>
+ * A position of the {@link OpeningBook}, if one is set, is not searched, nor is a position where
+ * the {@link EndgameSolver} proves a win. <br>
  * 
  * @author yzibin@google.com (Yoav Zibin)
  */
@@ -40,95 +57,353 @@ public class AlphaBetaPruning {
   static class TimeoutException extends RuntimeException {
 
     private static final long serialVersionUID = 1L;
+
+    /**
+     * The only instance: it carries nothing and has no stack trace, so aborting a deep search
+     * costs no more than unwinding it.
+     */
+    static final TimeoutException INSTANCE = new TimeoutException();
+
+    private TimeoutException() {
+      super(null, null, false, false);
+    }
   }
 
-  static class MoveScore implements Comparable<MoveScore> {
-  	// Five integers list represents a move/jump: {orginal_x, orginal_y, dest_x, dest_y, color}
-    ArrayList<ArrayList<Integer>> move;
+  static class MoveScore {
+    // The move encoded as an AbaloneMove.
+    int move;
+    // From the point of view of the player to move.
     int score;
+  }
+
+  /** 2^18 entries, 4MB. */
+  static final int DEFAULT_TABLE_SIZE_LOG2 = 18;
+  static final int MAX_PLY = 64;
+  static final int MAX_MOVES = MoveBuffer.MAX_MOVES;
+  /** Half the width of the first root move's window: about a push of one piece by two. */
+  static final int ASPIRATION_WINDOW = 10000;
 
+  private Heuristic heuristic;
+  private final TranspositionTable transpositionTable;
+  private final ForkJoinPool pool;
+  private final SearchOptions options;
+  // Set as soon as one of the threads times out, so the others stop too.
+  private final AtomicBoolean stop = new AtomicBoolean();
+  private final Searcher searcher;
+  private final ThreadLocal<Searcher> poolSearchers = new ThreadLocal<Searcher>() {
     @Override
-    public int compareTo(MoveScore o) {
-      return o.score - score; // sort DESC (best score first)
+    protected Searcher initialValue() {
+      return new Searcher(heuristic, transpositionTable, options, stop);
     }
+  };
+  private final int[] rootMoves = new int[MAX_MOVES];
+  private final AtomicLong nodes = new AtomicLong();
+  // The index of a root move that searched better than the first one in the current iteration.
+  private int partialBest;
+  private OpeningBook openingBook;
+  private EndgameSolver endgameSolver;
+
+  public AlphaBetaPruning(Heuristic heuristic, AbaloneState state) {
+    this(heuristic, new TranspositionTable(DEFAULT_TABLE_SIZE_LOG2,
+        ReplacementPolicy.DEPTH_PREFERRED));
   }
 
-  private Heuristic heuristic;
+  public AlphaBetaPruning(Heuristic heuristic, TranspositionTable transpositionTable) {
+    this(heuristic, transpositionTable, null);
+  }
 
-  public AlphaBetaPruning(Heuristic heuristic, AbaloneState state) {
+  /**
+   * @param pool the threads to split the root moves between, or null to search on the calling
+   * thread only.
+   */
+  public AlphaBetaPruning(Heuristic heuristic, TranspositionTable transpositionTable,
+      ForkJoinPool pool) {
+    this(heuristic, transpositionTable, pool, SearchOptions.DEFAULT);
+  }
+
+  /**
+   * @param pool the threads to split the root moves between, or null to search on the calling
+   * thread only.
+   */
+  public AlphaBetaPruning(Heuristic heuristic, TranspositionTable transpositionTable,
+      ForkJoinPool pool, SearchOptions options) {
     this.heuristic = heuristic;
+    this.transpositionTable = transpositionTable;
+    this.pool = pool;
+    this.options = options;
+    this.searcher = new Searcher(heuristic, transpositionTable, options, stop);
+  }
+
+  /**
+   * @return the number of nodes visited by the last {@link #findBestMove}, over all threads.
+   */
+  public long getNodeCount() {
+    return nodes.get();
+  }
+
+  /**
+   * See {@link Searcher#setDeeperCutoffs}. Only for the search on the calling thread.
+   */
+  void setDeeperCutoffs(boolean deeperCutoffs) {
+    searcher.setDeeperCutoffs(deeperCutoffs);
+  }
+
+  /**
+   * @param openingBook consulted before searching, or null to always search.
+   */
+  public void setOpeningBook(OpeningBook openingBook) {
+    this.openingBook = openingBook;
+  }
+
+  OpeningBook getOpeningBook() {
+    return openingBook;
+  }
+
+  /**
+   * @param endgameSolver asked for a forced win before searching, or null to always search.
+   */
+  public void setEndgameSolver(EndgameSolver endgameSolver) {
+    this.endgameSolver = endgameSolver;
   }
 
   public ArrayList<ArrayList<Integer>> findBestMove(AbaloneState state, int depth, Timer timer) {
-    boolean isWhite = state.getTurn().equals(AbaloneConstants.WTurn);
+    AbalonePosition position = AbalonePosition.fromState(state);
+    boolean isWhite = position.isWhiteTurn();
+    nodes.set(0);
+    int bookMove = openingBook == null ? AbaloneMove.NONE : openingBook.getMove(position);
+    if (bookMove != AbaloneMove.NONE) {
+      return AbaloneMove.toJumps(bookMove, isWhite);
+    }
+    if (endgameSolver != null) {
+      int win = endgameSolver.findWin(position, timer);
+      nodes.addAndGet(endgameSolver.getNodeCount());
+      if (win != AbaloneMove.NONE) {
+        return AbaloneMove.toJumps(win, isWhite);
+      }
+    }
+    stop.set(false);
+    transpositionTable.newSearch();
+    searcher.setRoot(position, timer);
     // Do iterative deepening (A*), and slow get better heuristic values for the states.
     List<MoveScore> scores = Lists.newArrayList();
-    {
-      List<ArrayList<ArrayList<Integer>>> possibleMoves = heuristic.getOrderedMoves(state);
-      for (ArrayList<ArrayList<Integer>> move : possibleMoves) {
-        MoveScore score = new MoveScore();
-        score.move = move;
-        score.score = Integer.MIN_VALUE;
-        scores.add(score);
-      }
+    int count = searcher.getRootMoves(rootMoves);
+    for (int i = 0; i < count; i++) {
+      MoveScore score = new MoveScore();
+      score.move = rootMoves[i];
+      score.score = Integer.MIN_VALUE;
+      scores.add(score);
     }
 
     try {
       for (int i = 0; i < depth; i++) {
-        for (MoveScore moveScore : scores) {
-          ArrayList<ArrayList<Integer>> move = moveScore.move;
-          int score =
-              findMoveScore(state.applyJumpOnBoard(move), i, Integer.MIN_VALUE, 
-              		Integer.MAX_VALUE, timer);
-          if (!isWhite) {
-            // the scores are from the point of view of the white, so for black we need to switch.
-            score = -score;
-          }
-          moveScore.score = score;
+        if (i > 0 && timer.shouldStopDeepening()) {
+          // Past the soft deadline, the next iteration would most likely not finish.
+          break;
         }
-        Collections.sort(scores); // This will give better pruning on the next iteration.
+        partialBest = 0;
+        int best = pool == null
+            ? searchRoot(scores, i, isWhite)
+            : searchRootParallel(scores, i, isWhite, position, timer);
+        // The best move is searched first on the next iteration, which gives better pruning.
+        scores.add(0, scores.remove(best));
+        nodes.addAndGet(searcher.takeNodeCount());
+        timer.iterationFinished(i + 1, scores.get(0).move, scores.get(0).score, nodes.get());
       }
     } catch (TimeoutException e) {
-      // OK, it should happen
+      // OK, it should happen. A move proven better than the previous best in the unfinished
+      // iteration is kept, the rest of that iteration is lost.
+      if (partialBest > 0) {
+        scores.add(0, scores.remove(partialBest));
+      }
+    } finally {
+      nodes.addAndGet(searcher.takeNodeCount());
     }
 
-    Collections.sort(scores);
-    return scores.get(0).move;
+    return AbaloneMove.toJumps(scores.get(0).move, isWhite);
   }
 
   /**
-   * If we get a timeout, then the score is invalid.
+   * Searches every root move on the calling thread.
+   * @return the index of the best move in {@code scores}.
    */
-  private int findMoveScore(AbaloneState state, int depth, int alpha, int beta, Timer timer)
-      throws TimeoutException {
-    if (timer.didTimeout()) {
-      throw new TimeoutException();
-    }
-    Optional<Boolean> over = state.getIsGameEnd();
-    if (depth == 0 || over.isPresent()) {
-      return heuristic.getStateValue(state);
-    }
-    String color = state.getTurn();
-    int scoreSum = 0;
-    int count = 0;
-    List<ArrayList<ArrayList<Integer>>> possibleMoves = heuristic.getOrderedMoves(state);
-    for (ArrayList<ArrayList<Integer>> move : possibleMoves) {
-      count++;
-      int childScore = findMoveScore(state.applyJumpOnBoard(move), depth - 1, alpha, beta, timer);
-      if (color == null) {
-        scoreSum += childScore;
-      } else if (color.equals(AbaloneConstants.WTurn)) {
-        alpha = Math.max(alpha, childScore);
-        if (beta <= alpha) {
-          break;
+  private int searchRoot(List<MoveScore> scores, int depth, boolean isWhite) {
+    int best = 0;
+    int bestScore = 0;
+    for (int i = 0; i < scores.size(); i++) {
+      MoveScore moveScore = scores.get(i);
+      if (i == 0) {
+        bestScore = searchFirst(searcher, moveScore, depth, isWhite);
+      } else {
+        int score = searchSibling(searcher, moveScore, depth, isWhite, bestScore);
+        if (isWhite ? score > bestScore : score < bestScore) {
+          best = i;
+          bestScore = score;
+          partialBest = best;
         }
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Searches the first root move on the calling thread, then all the others in the pool.
+   * @return the index of the best move in {@code scores}.
+   */
+  private int searchRootParallel(List<MoveScore> scores, int depth, boolean isWhite,
+      AbalonePosition position, Timer timer) {
+    int firstScore = searchFirst(searcher, scores.get(0), depth, isWhite);
+    AtomicInteger bestScore = new AtomicInteger(firstScore);
+    List<SiblingTask> tasks = Lists.newArrayList();
+    for (int i = 1; i < scores.size(); i++) {
+      SiblingTask task =
+          new SiblingTask(scores.get(i), depth, isWhite, bestScore, position, timer);
+      tasks.add(task);
+      pool.execute(task);
+    }
+    // Wait for all the tasks even after a timeout, they must not use the table anymore when we
+    // return.
+    Throwable exception = null;
+    for (SiblingTask task : tasks) {
+      task.quietlyJoin();
+      if (task.isCompletedAbnormally() && exception == null) {
+        stop.set(true);
+        exception = task.getException();
+      }
+    }
+    // Not the first finished but the first in move order, like the sequential search. The tasks
+    // that timed out are not exact.
+    int best = 0;
+    int score = firstScore;
+    for (int i = 0; i < tasks.size(); i++) {
+      SiblingTask task = tasks.get(i);
+      if (task.exact && (isWhite ? task.score > score : task.score < score)) {
+        best = i + 1;
+        score = task.score;
+      }
+    }
+    partialBest = best;
+    if (exception instanceof Error) {
+      throw (Error) exception;
+    }
+    if (exception != null) {
+      throw (RuntimeException) exception;
+    }
+    return best;
+  }
+
+  /**
+   * Searches the first root move, the best of the previous iteration, within an aspiration window
+   * around its previous score. The window is opened on the side the score falls out of, until the
+   * score is exact.
+   * @return the exact score, from white's point of view.
+   */
+  private static int searchFirst(Searcher searcher, MoveScore moveScore, int depth,
+      boolean isWhite) {
+    int alpha = Integer.MIN_VALUE;
+    int beta = Integer.MAX_VALUE;
+    // The score of the previous iteration, unless there was none or it was a win or a loss.
+    if (moveScore.score != Integer.MIN_VALUE && moveScore.score != Integer.MAX_VALUE) {
+      int previous = isWhite ? moveScore.score : -moveScore.score;
+      alpha = (int) Math.max(Integer.MIN_VALUE, (long) previous - ASPIRATION_WINDOW);
+      beta = (int) Math.min(Integer.MAX_VALUE, (long) previous + ASPIRATION_WINDOW);
+    }
+    int score;
+    while (true) {
+      score = searcher.searchRootMove(moveScore.move, depth, alpha, beta);
+      if (score <= alpha && alpha != Integer.MIN_VALUE) {
+        alpha = Integer.MIN_VALUE;
+      } else if (score >= beta && beta != Integer.MAX_VALUE) {
+        beta = Integer.MAX_VALUE;
       } else {
-        beta = Math.min(beta, childScore);
-        if (beta <= alpha) {
-          break;
+        break;
+      }
+    }
+    moveScore.score = fromWhite(score, isWhite);
+    return score;
+  }
+
+  /**
+   * Searches a root move other than the first one, first with a null window that only tells
+   * whether it is worse than {@code bestScore} (both from white's point of view). A move at least
+   * as good is searched again to get its exact score.
+   * @return the exact score, or a bound that is worse than {@code bestScore}.
+   */
+  private static int searchSibling(Searcher searcher, MoveScore moveScore, int depth,
+      boolean isWhite, int bestScore) {
+    int alpha = Integer.MIN_VALUE;
+    int beta = Integer.MAX_VALUE;
+    int score;
+    if (isWhite) {
+      alpha = bestScore == Integer.MIN_VALUE ? bestScore : bestScore - 1;
+      score = searcher.searchRootMove(moveScore.move, depth, alpha, alpha + 1);
+      if (score > alpha) {
+        score = searcher.searchRootMove(moveScore.move, depth, alpha, beta);
+      }
+    } else {
+      beta = bestScore == Integer.MAX_VALUE ? bestScore : bestScore + 1;
+      score = searcher.searchRootMove(moveScore.move, depth, beta - 1, beta);
+      if (score < beta) {
+        score = searcher.searchRootMove(moveScore.move, depth, alpha, beta);
+      }
+    }
+    moveScore.score = fromWhite(score, isWhite);
+    return score;
+  }
+
+  /**
+   * The scores are from the point of view of the white, so for black we need to switch.
+   */
+  private static int fromWhite(int score, boolean isWhite) {
+    if (isWhite) {
+      return score;
+    }
+    return score == Integer.MIN_VALUE ? Integer.MAX_VALUE : -score;
+  }
+
+  /**
+   * One root move searched on a pool thread, with that thread's {@link Searcher}.
+   */
+  private class SiblingTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final MoveScore moveScore;
+    private final int depth;
+    private final boolean isWhite;
+    private final AtomicInteger bestScore;
+    private final AbalonePosition position;
+    private final Timer timer;
+    // From white's point of view.
+    int score;
+    boolean exact;
+
+    SiblingTask(MoveScore moveScore, int depth, boolean isWhite, AtomicInteger bestScore,
+        AbalonePosition position, Timer timer) {
+      this.moveScore = moveScore;
+      this.depth = depth;
+      this.isWhite = isWhite;
+      this.bestScore = bestScore;
+      this.position = position;
+      this.timer = timer;
+    }
+
+    @Override
+    protected void compute() {
+      Searcher poolSearcher = poolSearchers.get();
+      poolSearcher.setRoot(position, timer);
+      try {
+        int best = bestScore.get();
+        score = searchSibling(poolSearcher, moveScore, depth, isWhite, best);
+        exact = isWhite ? score >= best : score <= best;
+        while (exact && (isWhite ? score > best : score < best)
+            && !bestScore.compareAndSet(best, score)) {
+          best = bestScore.get();
         }
+      } catch (TimeoutException e) {
+        stop.set(true);
+        throw e;
+      } finally {
+        nodes.addAndGet(poolSearcher.takeNodeCount());
       }
     }
-    return color == null ? scoreSum / count : color.equals(AbaloneConstants.WTurn) ? alpha : beta;
   }
 }
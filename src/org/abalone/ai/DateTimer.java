@@ -42,4 +42,12 @@ public class DateTimer implements Timer {
     return milliseconds <= 0 ? false : now() > start + milliseconds;
   }
 
+  @Override
+  public boolean shouldStopDeepening() {
+    return didTimeout();
+  }
+
+  @Override
+  public void iterationFinished(int depth, int bestMove, int bestScore, long nodes) {
+  }
 }
@@ -0,0 +1,199 @@
+package org.abalone.ai;
+
+import org.abalone.ai.AlphaBetaPruning.TimeoutException;
+import org.abalone.client.AbaloneMove;
+import org.abalone.client.AbalonePosition;
+import org.abalone.client.MoveGenerator;
+
+/**
+ * Proves that the player to move can force an ejection, which ends the game, within a few of its
+ * own moves. The search is depth-first over forcing moves only: the attacker only pushes, while
+ * every move of the defender is tried, so a win found is a real one but a win that needs a quiet
+ * move is missed. It goes one attacker move deeper at a time, so the shortest win is found.<br>
+ * Solved positions are kept between calls in a direct-mapped cache keyed by position hash: a
+ * proven win remembers its number of moves, and a position without a win the number of moves it
+ * was searched to.<br>
+ * A solver is used by one thread at a time. {@link AlphaBetaPruning} asks it first, if one is set,
+ * and plays the win without searching.
+ */
+public class EndgameSolver {
+  /** Deep enough for the pushes that end on the edge, cheap enough to run before every search. */
+  public static final int DEFAULT_MAX_MOVES = 3;
+  public static final int DEFAULT_MAX_NODES = 200000;
+  /** 2^16 entries, 1MB. */
+  static final int CACHE_SIZE_LOG2 = 16;
+
+  private final int maxMoves;
+  private final int maxNodes;
+  private final long[] keys = new long[1 << CACHE_SIZE_LOG2];
+  // n > 0: a win in n moves, n < 0: no win in -n moves, 0: empty.
+  private final int[] values = new int[1 << CACHE_SIZE_LOG2];
+  private final int[] winningMoves = new int[1 << CACHE_SIZE_LOG2];
+  private final MoveBuffer buffer;
+  // The last defender move that refuted the attack, per ply, tried first.
+  private final int[] refutations;
+  private SearchBoard board;
+  private Timer timer;
+  private long nodes;
+  private int winMoves;
+
+  public EndgameSolver() {
+    this(DEFAULT_MAX_MOVES, DEFAULT_MAX_NODES);
+  }
+
+  /**
+   * @param maxMoves the most moves of the attacker (the ejection included) a win may take.
+   * @param maxNodes the search gives up after that many nodes, negative for no limit.
+   */
+  public EndgameSolver(int maxMoves, int maxNodes) {
+    if (maxMoves <= 0) {
+      throw new IllegalArgumentException("maxMoves should be positive");
+    }
+    this.maxMoves = maxMoves;
+    this.maxNodes = maxNodes;
+    this.buffer = new MoveBuffer(2 * maxMoves, MoveBuffer.MAX_MOVES);
+    this.refutations = new int[2 * maxMoves];
+  }
+
+  /**
+   * @return the number of nodes visited by the last {@link #findWin}.
+   */
+  public long getNodeCount() {
+    return nodes;
+  }
+
+  /**
+   * @return the number of moves of the attacker in the win found by the last {@link #findWin}, 0
+   * if there was none.
+   */
+  public int getWinMoves() {
+    return winMoves;
+  }
+
+  /**
+   * @return the first move of the shortest forced win of the player to move, or
+   * {@link AbaloneMove#NONE} if there is none within the maximum moves, or the search ran out of
+   * nodes or time.
+   */
+  public int findWin(AbalonePosition position, Timer timer) {
+    this.timer = timer;
+    nodes = 0;
+    winMoves = 0;
+    if (position.isGameEnd()) {
+      return AbaloneMove.NONE;
+    }
+    board = new SearchBoard(position, 2 * maxMoves);
+    try {
+      for (int moves = 1; moves <= maxMoves; moves++) {
+        int win = findAttack(moves);
+        if (win != AbaloneMove.NONE) {
+          winMoves = moves;
+          return win;
+        }
+      }
+    } catch (TimeoutException e) {
+      // The positions solved so far are still in the cache.
+    }
+    return AbaloneMove.NONE;
+  }
+
+  /**
+   * @return the attacker move that wins in {@code moves}, or {@link AbaloneMove#NONE}.
+   */
+  private int findAttack(int moves) {
+    long hash = board.getHash();
+    int index = (int) hash & (keys.length - 1);
+    if (keys[index] == hash) {
+      int value = values[index];
+      if (value > 0 && value <= moves) {
+        return winningMoves[index];
+      }
+      if (value < 0 && -value >= moves) {
+        return AbaloneMove.NONE;
+      }
+    }
+    int win = searchAttacks(moves);
+    if (win == AbaloneMove.NONE && keys[index] == hash && values[index] > 0) {
+      // The longer win is worth more than the shorter search.
+      return win;
+    }
+    keys[index] = hash;
+    values[index] = win == AbaloneMove.NONE ? -moves : moves;
+    winningMoves[index] = win;
+    return win;
+  }
+
+  private int searchAttacks(int moves) {
+    int[] attacks = buffer.get(board.getPly());
+    int count = generatePushes(attacks);
+    for (int i = 0; i < count; i++) {
+      if (AbaloneMove.isEjecting(attacks[i])) {
+        return attacks[i];
+      }
+    }
+    if (moves == 1) {
+      return AbaloneMove.NONE;
+    }
+    for (int i = 0; i < count; i++) {
+      makeMove(attacks[i]);
+      boolean win = defenderLoses(moves - 1);
+      board.unmakeMove();
+      if (win) {
+        return attacks[i];
+      }
+    }
+    return AbaloneMove.NONE;
+  }
+
+  /**
+   * @return whether every move of the defender loses to an attack in {@code moves}.
+   */
+  private boolean defenderLoses(int moves) {
+    int ply = board.getPly();
+    int[] defences = buffer.get(ply);
+    int count = MoveGenerator.generateMoves(board.getMine(), board.getOpponent(), defences);
+    if (count == 0) {
+      return false;
+    }
+    // The refutation of the sibling attack first: it often refutes this one too.
+    for (int i = 0; i < count; i++) {
+      if (defences[i] == refutations[ply]) {
+        defences[i] = defences[0];
+        defences[0] = refutations[ply];
+        break;
+      }
+    }
+    for (int i = 0; i < count; i++) {
+      int defence = defences[i];
+      if (AbaloneMove.isEjecting(defence)) {
+        return false;
+      }
+      makeMove(defence);
+      boolean win = findAttack(moves) != AbaloneMove.NONE;
+      board.unmakeMove();
+      if (!win) {
+        refutations[ply] = defence;
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int generatePushes(int[] moves) {
+    int count = MoveGenerator.generateInlineMoves(board.getMine(), board.getOpponent(), moves, 0);
+    int pushes = 0;
+    for (int i = 0; i < count; i++) {
+      if (AbaloneMove.getOpponentCount(moves[i]) > 0) {
+        moves[pushes++] = moves[i];
+      }
+    }
+    return pushes;
+  }
+
+  private void makeMove(int move) {
+    if (++nodes == maxNodes || timer.didTimeout()) {
+      throw TimeoutException.INSTANCE;
+    }
+    board.makeMove(move);
+  }
+}
@@ -18,7 +18,7 @@ package org.abalone.ai;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.abalone.client.AbaloneState;
+import org.abalone.client.AbalonePosition;
 
 
 /**
@@ -34,7 +34,7 @@ public interface Heuristic {
    * position. When the white wins you can return {@link Integer#MAX_VALUE}, and when the white
    * loses you can return {@link Integer#MIN_VALUE}.
    */
-  int getStateValue(AbaloneState state);
+  int getStateValue(AbalonePosition position);
 
   /**
    * Returns the order in which we should explore the next states. An optimal heuristic would return
@@ -51,5 +51,17 @@ public interface Heuristic {
    * states due to pruning. For example, if alpha-beta pruning cut of a branch we can stop iterating
    * over the next states.<br>
    */
-  List<ArrayList<ArrayList<Integer>>> getOrderedMoves(AbaloneState state);
+  List<ArrayList<ArrayList<Integer>>> getOrderedMoves(AbalonePosition position);
+
+  /**
+   * Same as {@link #getStateValue(AbalonePosition)}, for the board being searched.
+   */
+  int getStateValue(SearchBoard board);
+
+  /**
+   * Same as {@link #getOrderedMoves(AbalonePosition)}, but the moves are written as
+   * {@link org.abalone.client.AbaloneMove}s into {@code moves}, so the search does not allocate.
+   * @return the number of moves written.
+   */
+  int getOrderedMoves(SearchBoard board, int[] moves);
 }
@@ -1,13 +1,12 @@
 package org.abalone.ai;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
-import org.abalone.client.AbaloneConstants;
-import org.abalone.client.AbalonePresenter;
+import org.abalone.client.AbaloneMove;
+import org.abalone.client.AbalonePosition;
+import org.abalone.client.MoveGenerator;
 import org.abalone.client.AbalonePresenter.Direction;
-import org.abalone.client.AbaloneState;
 
 import com.google.gwt.thirdparty.guava.common.collect.Lists;
 
@@ -20,266 +19,121 @@ public class HeuristicImpl implements Heuristic {
 	private final int threeToOne = 20000;
 	private final int threeToTwo = 50000;
 	
-	private List<ArrayList<ArrayList<Integer>>> oneToZeroJumps = Lists.newArrayList();
-	private List<ArrayList<ArrayList<Integer>>> twoToZeroJumps = Lists.newArrayList();
-	private List<ArrayList<ArrayList<Integer>>> threeToZeroJumps = Lists.newArrayList();
-	private List<ArrayList<ArrayList<Integer>>> twoToOneJumps = Lists.newArrayList();
-	private List<ArrayList<ArrayList<Integer>>> threeToOneJumps = Lists.newArrayList();
-	private List<ArrayList<ArrayList<Integer>>> threeToTwoJumps = Lists.newArrayList();
-	private List<ArrayList<ArrayList<Integer>>> winningJumps = Lists.newArrayList();
-	
+	private static final int DIRECTIONS = Direction.values().length;
 	
+	/*
+	 * No state is kept between calls: the moves are generated by MoveGenerator into a MoveBuffer,
+	 * so the same instance can be used by several search threads.
+	 */
+
 	@Override
-	public int getStateValue(AbaloneState state) {
-		if (state.getIsGameEnd().isPresent()) {
-			if (state.getTurn().equals(AbaloneConstants.WTurn)) {
-				return Integer.MAX_VALUE;
-			} else {
-				return Integer.MIN_VALUE;
-			}
-		}
-		
-		String turn = state.getTurn();
-		getAllPossibleMoves(state);
-		int totalScore = 0;
-		if(!winningJumps.isEmpty()) {
-			totalScore = Integer.MAX_VALUE;
-		} else {
-			totalScore += 
-					oneToZero * oneToZeroJumps.size() +
-					twoToZero * twoToZeroJumps.size() +
-					threeToZero * threeToZeroJumps.size() +
-					twoToOne * twoToOneJumps.size() +
-					threeToOne * threeToOneJumps.size() +
-					threeToTwo * threeToTwoJumps.size();
-		}
-		if (turn.equals(AbaloneConstants.WTurn)) {
-			return totalScore;
-		} else {
-			if (totalScore == Integer.MAX_VALUE) {
+	public int getStateValue(AbalonePosition position) {
+		if (position.isGameEnd()) {
+			// The player whose piece has been pushed out of the board loses.
+			if (position.isEjectedWhite()) {
 				return Integer.MIN_VALUE;
 			} else {
-				return -totalScore;
+				return Integer.MAX_VALUE;
 			}
 		}
-		
+		return getStateValue(position.getMine(), position.getOpponent(), position.isWhiteTurn());
 	}
 
 	@Override
-	public List<ArrayList<ArrayList<Integer>>> getOrderedMoves(AbaloneState state) {
-		getAllPossibleMoves(state);
-		List<ArrayList<ArrayList<Integer>>> orderedMoves = Lists.newArrayList();
-		orderedMoves.addAll(winningJumps);
-		orderedMoves.addAll(threeToTwoJumps);
-		orderedMoves.addAll(threeToOneJumps);
-		orderedMoves.addAll(twoToOneJumps);
-		orderedMoves.addAll(threeToZeroJumps);
-		orderedMoves.addAll(twoToZeroJumps);
-		orderedMoves.addAll(oneToZeroJumps);
+	public List<ArrayList<ArrayList<Integer>>> getOrderedMoves(AbalonePosition position) {
+		int[] moves = MoveBuffer.forCurrentThread().get(0);
+		int count = getOrderedMoves(position.getMine(), position.getOpponent(), moves);
+		List<ArrayList<ArrayList<Integer>>> orderedMoves = Lists.newArrayListWithCapacity(count);
+		for (int i = 0; i < count; i++) {
+			orderedMoves.add(AbaloneMove.toJumps(moves[i], position.isWhiteTurn()));
+		}
 		return orderedMoves;
 	}
 	
-	@SuppressWarnings("unchecked")
-	private void getAllPossibleMoves(AbaloneState state) {
-		String turn = state.getTurn();
-		List<ArrayList<String>> board = state.getBoard();
-		String myColor = 
-				turn.equals(AbaloneConstants.WTurn) ? AbaloneConstants.W : AbaloneConstants.B;
-//		String opponentColor = 
-//				myColor.equals(AbaloneConstants.W) ? AbaloneConstants.B : AbaloneConstants.W;
-		AbalonePresenter presenter = new AbalonePresenter();
-		boolean[][] holdableMatrix = presenter.getEnableSquares(board, turn);
-		for (int i = 0; i < AbaloneConstants.BoardRowNum; i++) {
-			for (int j = 0; j < AbaloneConstants.BoardColNum; j++) {
-				boolean isHoldable = holdableMatrix[i][j];
-				if (isHoldable) {
-					boolean[][] placableMatrix = presenter.getPlacableMatrix(i, j);
-					for (int k = 0; k < AbaloneConstants.BoardRowNum; k++) {
-						for (int t = 0; t < AbaloneConstants.BoardColNum; t++) {
-							boolean isPlacable = placableMatrix[k][t];
-							if (isPlacable) {
-								List<ArrayList<Integer>> jumps = Lists.<ArrayList<Integer>>newArrayList(
-										Lists.newArrayList(i, j, k, t, myColor.equals(AbaloneConstants.W) ? 0 : 1));
-								Direction direction = AbalonePresenter.getJumpDirection(jumps);
-								getMoveOnDirection(i, j, myColor, direction, board);
-							}
-						}
-					}
+	@Override
+	public int getStateValue(SearchBoard board) {
+		if (board.isGameEnd()) {
+			return board.isEjectedWhite() ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+		}
+		return getStateValue(board.getMine(), board.getOpponent(), board.isWhiteTurn());
+	}
+	
+	@Override
+	public int getOrderedMoves(SearchBoard board, int[] moves) {
+		return getOrderedMoves(board.getMine(), board.getOpponent(), moves);
+	}
+	
+	private int getStateValue(long mine, long opponent, boolean whiteTurn) {
+		int totalScore = 0;
+		for (long pieces = mine; pieces != 0; pieces &= pieces - 1) {
+			int cell = Long.numberOfTrailingZeros(pieces);
+			for (int direction = 0; direction < DIRECTIONS; direction++) {
+				int move = MoveGenerator.getInlineMove(mine, opponent, cell, direction);
+				if (move == AbaloneMove.NONE) {
+					continue;
 				}
+				if (AbaloneMove.isEjecting(move)) {
+					return whiteTurn ? Integer.MAX_VALUE : Integer.MIN_VALUE;
+				}
+				totalScore += getMoveScore(move);
 			}
 		}
+		return whiteTurn ? totalScore : -totalScore;
 	}
 	
-	private void getMoveOnDirection (int x, int y, String color, Direction direction, 
-			List<ArrayList<String>> board) {
-		if (x < 0 || y < 0 || color == null || color.isEmpty()) {
-			throw new IllegalArgumentException("Illegal argument provided!");
+	/**
+	 * Writes the moves of the player owning {@code mine} into {@code moves}, winning moves first,
+	 * then the strongest pushes, then the plain inline moves of three, two and one piece, and the
+	 * broadside moves last.
+	 * @return the number of moves written.
+	 * @throws IllegalStateException if {@code moves} is too short, rather than growing it.
+	 */
+	private int getOrderedMoves(long mine, long opponent, int[] moves) {
+		int count = MoveGenerator.generateMoves(mine, opponent, moves);
+		// Insertion sort on the move groups, stable inside a group.
+		for (int i = 1; i < count; i++) {
+			int move = moves[i];
+			int rank = getMoveRank(move);
+			int j = i - 1;
+			while (j >= 0 && getMoveRank(moves[j]) < rank) {
+				moves[j + 1] = moves[j];
+				j--;
+			}
+			moves[j + 1] = move;
 		}
-		int piece = color.equals(AbaloneConstants.W) ? 0: 1;
-		int myCount = 0;
-		int opponentCount = 0;
-		List<String> row = Lists.newArrayList();
-		int i = 0;
-		int j = 0;
-		ArrayList<ArrayList<Integer>> jumps = Lists.<ArrayList<Integer>>newArrayList(); 
-		switch(direction) {
-			case LEFT_HORIZONTAL:
-				row = board.get(x);
-				i = y + 2;
-				myCount++;
-				while(i < AbaloneConstants.BoardColNum && 
-							!row.get(i + 1).equals(AbaloneConstants.S) &&
-							!row.get(i).equals(AbaloneConstants.E)) {
-					if(row.get(i).equals(color)) {
-						myCount++;
-					} else {
-						opponentCount++;
-					}
-					jumps.add(Lists.newArrayList(x, i - 2, x, i, piece));
-					i += 2;
-				}
-				if(row.get(i).equals(AbaloneConstants.E)) {
-					addToCertainJumpGroup(jumps, myCount, opponentCount);
-				} else if (row.get(i + 1).equals(AbaloneConstants.S)) {
-					jumps.add(Lists.newArrayList(x, i - 2, x, i, piece));
-					Collections.sort(jumps, AbalonePresenter.jumpComparator);
-					winningJumps.add(jumps);
-				}
-				break;
-			case RIGHT_HORIZONTAL:
-				row = board.get(x);
-				i = y - 2;
-				myCount++;
-				while(i >= 0 && !row.get(i - 1).equals(AbaloneConstants.S) &&
-							!row.get(i).equals(AbaloneConstants.E)) {
-					if (row.get(i).equals(color)) {
-						myCount++;
-					} else {
-						opponentCount++;
-					}
-					jumps.add(Lists.newArrayList(x, i + 2, x, i, piece));
-					i -= 2;
- 				}
-				if(row.get(i).equals(AbaloneConstants.E)) {
-					addToCertainJumpGroup(jumps, myCount, opponentCount);
-				} else if (row.get(i - 1).equals(AbaloneConstants.S)) {
-					jumps.add(Lists.newArrayList(x, i + 2, x, i, piece));
-					Collections.sort(jumps, AbalonePresenter.jumpComparator);
-					winningJumps.add(jumps);				
-				}
-				break;
-			case UPPER_LEFT_DIAGONAL:
-				i = x - 1;
-				j = y - 1;
-				myCount++;
-				while(i >= 0 && j >= 0 && 
-							!board.get(i).get(j).equals(AbaloneConstants.E) &&
-							!board.get(i).get(j).equals(AbaloneConstants.S)) {
-					if(board.get(i).get(j).equals(color)) {
-						myCount++;
-					} else {
-						opponentCount++;
-					}
-					jumps.add(Lists.newArrayList(i + 1, j + 1, i, j, piece));
-					i--;
-					j--;
-				}
-				if (board.get(i).get(j).equals(AbaloneConstants.E)) {
-					addToCertainJumpGroup(jumps, myCount, opponentCount); 
-				} else if (board.get(i).get(j).equals(AbaloneConstants.S)) {
-					Collections.sort(jumps, AbalonePresenter.jumpComparator);
-					winningJumps.add(jumps);
-				}
-				break;
-			case UPPER_RIGHT_DIAGONAL:
-				i = x - 1;
-				j = y + 1;
-				myCount++;
-				while(i >= 0 && j < AbaloneConstants.BoardColNum && 
-							!board.get(i).get(j).equals(AbaloneConstants.E) &&
-							!board.get(i).get(j).equals(AbaloneConstants.S)) {
-					if(board.get(i).get(j).equals(color)) {
-						myCount++;
-					} else {
-						opponentCount++;
-					}
-					jumps.add(Lists.newArrayList(i + 1, j - 1, i, j, piece));
-					i--;
-					j++;
-				}
-				if (board.get(i).get(j).equals(AbaloneConstants.E)) {
-					addToCertainJumpGroup(jumps, myCount, opponentCount); 
-				} else if (board.get(i).get(j).equals(AbaloneConstants.S)) {
-					Collections.sort(jumps, AbalonePresenter.jumpComparator);
-					winningJumps.add(jumps);
-				}
-				break;
-			case LOWER_LEFT_DIAGONAL:
-				i = x + 1;
-				j = y - 1;
-				myCount++;
-				while(i >= 0 && j >= 0 && 
-							!board.get(i).get(j).equals(AbaloneConstants.E) &&
-							!board.get(i).get(j).equals(AbaloneConstants.S)) {
-					if(board.get(i).get(j).equals(color)) {
-						myCount++;
-					} else {
-						opponentCount++;
-					}
-					jumps.add(Lists.newArrayList(i - 1, j + 1, i, j, piece));
-					i++;
-					j--;
-				}
-				if (board.get(i).get(j).equals(AbaloneConstants.E)) {
-					addToCertainJumpGroup(jumps, myCount, opponentCount); 
-				} else if (board.get(i).get(j).equals(AbaloneConstants.S)) {
-					Collections.sort(jumps, AbalonePresenter.jumpComparator);
-					winningJumps.add(jumps);
-				}
-				break;
-			case LOWER_RIGHT_DIAGONAL:
-				i = x + 1;
-				j = y + 1;
-				myCount++;
-				while(i >= 0 && j >= 0 && 
-							!board.get(i).get(j).equals(AbaloneConstants.E) &&
-							!board.get(i).get(j).equals(AbaloneConstants.S)) {
-					if(board.get(i).get(j).equals(color)) {
-						myCount++;
-					} else {
-						opponentCount++;
-					}
-					jumps.add(Lists.newArrayList(i - 1, j - 1, i, j, piece));
-					i++;
-					j++;
-				}
-				if (board.get(i).get(j).equals(AbaloneConstants.E)) {
-					addToCertainJumpGroup(jumps, myCount, opponentCount); 
-				} else if (board.get(i).get(j).equals(AbaloneConstants.S)) {
-					Collections.sort(jumps, AbalonePresenter.jumpComparator);
-					winningJumps.add(jumps);
-				}
-				break;
-			default:
-				break;
+		return count;
+	}
+	
+	/**
+	 * @return the group the move belongs to, the higher the earlier it is explored.
+	 */
+	static int getMoveRank(int move) {
+		if (AbaloneMove.isBroadside(move)) {
+			return 0;
+		}
+		if (AbaloneMove.isEjecting(move)) {
+			return 7;
+		}
+		int myCount = AbaloneMove.getOwnCount(move);
+		int opponentCount = AbaloneMove.getOpponentCount(move);
+		if (opponentCount == 0) {
+			return myCount;
+		}
+		if (myCount == 2) {
+			return 4;
 		}
+		return opponentCount == 1 ? 5 : 6;
 	}
 	
-	private void addToCertainJumpGroup(ArrayList<ArrayList<Integer>> jumps,
-			int myCount, int opponentCount) {
-		Collections.sort(jumps, AbalonePresenter.jumpComparator);
-		if(myCount == 1 && opponentCount == 0) {
-			oneToZeroJumps.add(jumps);
-		} else if (myCount == 2 && opponentCount == 0) {
-			twoToZeroJumps.add(jumps);
-		} else if (myCount == 3 && opponentCount == 0) {
-			threeToZeroJumps.add(jumps);
-		} else if (myCount == 2 && opponentCount == 1) {
-			twoToOneJumps.add(jumps);
-		} else if (myCount == 3 && opponentCount == 1) {
-			threeToOneJumps.add(jumps);
-		} else if (myCount == 3 && opponentCount == 2) {
-			threeToTwoJumps.add(jumps);
+	private int getMoveScore(int move) {
+		switch (getMoveRank(move)) {
+			case 1: return oneToZero;
+			case 2: return twoToZero;
+			case 3: return threeToZero;
+			case 4: return twoToOne;
+			case 5: return threeToOne;
+			case 6: return threeToTwo;
+			default: return 0;
 		}
 	}
 }
@@ -0,0 +1,165 @@
+package org.abalone.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.abalone.ai.AlphaBetaPruning.TimeoutException;
+import org.abalone.client.AbaloneMove;
+import org.abalone.client.AbalonePosition;
+import org.abalone.client.AbaloneState;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Lazy SMP: while the main thread runs the usual {@link AlphaBetaPruning} iterative deepening, a
+ * few helper threads search the same position on their own, all sharing one {@link
+ * TranspositionTable}. The helpers never report a move; they only fill the table, so the main
+ * thread finds most of its positions already searched (or at least gets a good first move for
+ * them). Half of the helpers skip the first iteration to stay one ply ahead, and each helper
+ * orders the moves a little differently, so they spread over different parts of the tree.<br>
+ * The entries the helpers searched deeper than the main thread needs cut off its search too (see
+ * {@link Searcher#setDeeperCutoffs}), so its scores can be deeper than asked, and the move may
+ * differ from the one of a sequential search when several moves are about as good.<br>
+ * The table is shared without locks, see {@link TranspositionTable}.<br>
+ * {@link #shutdown()} should be called once the search is not needed anymore.
+ */
+public class LazySmpSearch {
+  private final AlphaBetaPruning main;
+  private final Searcher[] helpers;
+  private final ExecutorService executor;
+  // Tells the helpers that the main thread is done.
+  private final AtomicBoolean stop = new AtomicBoolean();
+  private final AtomicLong helperNodes = new AtomicLong();
+
+  public LazySmpSearch(Heuristic heuristic, TranspositionTable transpositionTable,
+      int helperCount) {
+    this(heuristic, transpositionTable, helperCount, SearchOptions.DEFAULT);
+  }
+
+  public LazySmpSearch(Heuristic heuristic, TranspositionTable transpositionTable,
+      int helperCount, SearchOptions options) {
+    if (helperCount < 0) {
+      throw new IllegalArgumentException("helperCount should not be negative");
+    }
+    this.main = new AlphaBetaPruning(heuristic, transpositionTable, null, options);
+    main.setDeeperCutoffs(true);
+    this.helpers = new Searcher[helperCount];
+    for (int i = 0; i < helperCount; i++) {
+      helpers[i] = new Searcher(heuristic, transpositionTable, options, stop);
+      helpers[i].setDeeperCutoffs(true);
+      // Any odd constant gives a different non zero seed per helper.
+      helpers[i].setOrderingSeed((i + 1) * 0x9E3779B97F4A7C15L);
+    }
+    this.executor = helperCount == 0 ? null : Executors.newFixedThreadPool(helperCount);
+  }
+
+  /**
+   * @return the number of nodes visited by the last {@link #findBestMove}, over all threads.
+   */
+  public long getNodeCount() {
+    return main.getNodeCount() + helperNodes.get();
+  }
+
+  /**
+   * @return the number of nodes visited by the main thread in the last {@link #findBestMove}.
+   */
+  long getMainNodeCount() {
+    return main.getNodeCount();
+  }
+
+  /**
+   * @param openingBook consulted before searching, or null to always search.
+   */
+  public void setOpeningBook(OpeningBook openingBook) {
+    main.setOpeningBook(openingBook);
+  }
+
+  /**
+   * @param endgameSolver asked for a forced win before searching, or null to always search.
+   */
+  public void setEndgameSolver(EndgameSolver endgameSolver) {
+    main.setEndgameSolver(endgameSolver);
+  }
+
+  public ArrayList<ArrayList<Integer>> findBestMove(AbaloneState state, int depth, Timer timer) {
+    AbalonePosition position = AbalonePosition.fromState(state);
+    stop.set(false);
+    helperNodes.set(0);
+    OpeningBook openingBook = main.getOpeningBook();
+    if (openingBook != null && openingBook.getMove(position) != AbaloneMove.NONE) {
+      // The main search plays the book move, the helpers are not needed.
+      return main.findBestMove(state, depth, timer);
+    }
+    List<Future<?>> futures = Lists.newArrayList();
+    for (int i = 0; i < helpers.length; i++) {
+      helpers[i].setRoot(position, timer);
+      futures.add(executor.submit(new Helper(helpers[i], timer, depth, i % 2)));
+    }
+    try {
+      // findBestMove starts a new table search, which the helpers do not need to wait for: their
+      // entries only get older by one.
+      return main.findBestMove(state, depth, timer);
+    } finally {
+      stop.set(true);
+      for (Future<?> future : futures) {
+        waitFor(future);
+      }
+    }
+  }
+
+  private static void waitFor(Future<?> future) {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Lazy SMP helper failed", e.getCause());
+    }
+  }
+
+  /**
+   * Stops the helper threads. The search cannot be used afterwards.
+   */
+  public void shutdown() {
+    if (executor != null) {
+      executor.shutdown();
+    }
+  }
+
+  private class Helper implements Runnable {
+    private final Searcher searcher;
+    private final Timer timer;
+    private final int maxDepth;
+    private final int extraDepth;
+
+    Helper(Searcher searcher, Timer timer, int maxDepth, int extraDepth) {
+      this.searcher = searcher;
+      this.timer = timer;
+      this.maxDepth = maxDepth;
+      this.extraDepth = extraDepth;
+    }
+
+    @Override
+    public void run() {
+      try {
+        // Like the main thread, the deepest search looks maxDepth plies ahead of the root.
+        for (int i = 1 + extraDepth; i <= maxDepth && !stop.get(); i++) {
+          if (i > 1 + extraDepth && timer.shouldStopDeepening()) {
+            break;
+          }
+          searcher.searchRoot(i);
+        }
+      } catch (TimeoutException e) {
+        // OK, the main thread is done or the time is over.
+      } finally {
+        helperNodes.addAndGet(searcher.takeNodeCount());
+      }
+    }
+  }
+}
@@ -0,0 +1,386 @@
+package org.abalone.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.abalone.client.AbaloneMove;
+import org.abalone.client.AbalonePosition;
+import org.abalone.client.AbaloneState;
+import org.abalone.client.MoveGenerator;
+
+import com.google.common.collect.Lists;
+
+/**
+ * http://en.wikipedia.org/wiki/Monte_Carlo_tree_search<br>
+ * An alternative to {@link AlphaBetaPruning} with the same {@link #findBestMove} contract: it grows
+ * a tree from the current position by repeating
+ * <ul>
+ * <li>selection: from the root, go to the child with the best UCT value (win rate plus an
+ * exploration bonus for the children visited less) until a node that has not been expanded;</li>
+ * <li>expansion: add the moves of that node, in the {@link Heuristic}'s order, so the good moves
+ * are tried first;</li>
+ * <li>playout: play lightly guided random moves (always eject a piece when possible, and prefer
+ * pushes) until the game ends or {@link #MAX_PLAYOUT_PLIES}, where the heuristic value decides;
+ * </li>
+ * <li>backpropagation: count the result in every node of the path.</li>
+ * </ul>
+ * The most visited move of the root is played. The tree is kept for the next call: when its
+ * position is the root, a child or a grandchild of the previous one, that subtree is reused.<br>
+ * Several threads can run playouts on the same tree. A thread going down a node counts the visit
+ * at once, as if it had lost (virtual loss), so the other threads prefer other paths until the
+ * result is known.<br>
+ * {@link #shutdown()} should be called once the search is not needed anymore.
+ */
+public class MonteCarloTreeSearch {
+  /** Playouts longer than that are decided by the heuristic. */
+  static final int MAX_PLAYOUT_PLIES = 100;
+  /** The deepest a selection goes, deeper nodes are played out without being expanded. */
+  static final int MAX_TREE_DEPTH = 64;
+  static final double EXPLORATION = Math.sqrt(2);
+
+  /**
+   * A position of the tree. {@code visits} and {@code halfPoints} are only changed while holding
+   * the node's lock, and read without it during selection: a slightly stale value only changes
+   * which child is tried.
+   */
+  static final class Node {
+    // The move that leads to this node, AbaloneMove.NONE for the root.
+    final int move;
+    // Null until expanded, guarded by this.
+    private Node[] children;
+    volatile int visits;
+    // 2 per win and 1 per draw, for the player who made the move.
+    volatile int halfPoints;
+
+    Node(int move) {
+      this.move = move;
+    }
+
+    synchronized Node[] getChildren() {
+      return children;
+    }
+  }
+
+  private final Heuristic heuristic;
+  private final Worker[] workers;
+  private final ExecutorService executor;
+  private final AtomicBoolean stop = new AtomicBoolean();
+  private final AtomicInteger playouts = new AtomicInteger();
+  private Node root;
+  private AbalonePosition rootPosition;
+  private long nanos;
+
+  /**
+   * @param threads the number of threads running playouts, including the calling one.
+   */
+  public MonteCarloTreeSearch(Heuristic heuristic, int threads) {
+    if (threads <= 0) {
+      throw new IllegalArgumentException("threads should be positive");
+    }
+    this.heuristic = heuristic;
+    this.workers = new Worker[threads];
+    for (int i = 0; i < threads; i++) {
+      // Any odd constant gives a different non zero seed per thread.
+      workers[i] = new Worker((i + 1) * 0x9E3779B97F4A7C15L);
+    }
+    this.executor = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1);
+  }
+
+  /**
+   * @return the number of playouts of the last {@link #findBestMove}, over all threads.
+   */
+  public int getPlayoutCount() {
+    return playouts.get();
+  }
+
+  public long getPlayoutsPerSecond() {
+    return nanos == 0 ? 0 : playouts.get() * 1000000000L / nanos;
+  }
+
+  /**
+   * @return the number of playouts below the current root, including the ones of the previous
+   * calls that were kept.
+   */
+  int getRootVisits() {
+    return root == null ? 0 : root.visits;
+  }
+
+  /**
+   * Runs playouts until {@code maxPlayouts}, or until the soft or hard deadline of the timer: the
+   * search has no iterations, so {@link Timer#shouldStopDeepening()} is checked after each playout.
+   */
+  public ArrayList<ArrayList<Integer>> findBestMove(AbaloneState state, int maxPlayouts,
+      Timer timer) {
+    long start = System.nanoTime();
+    AbalonePosition position = AbalonePosition.fromState(state);
+    reuseTree(position);
+    stop.set(false);
+    playouts.set(0);
+    List<Future<?>> futures = Lists.newArrayList();
+    for (int i = 1; i < workers.length; i++) {
+      futures.add(executor.submit(new Playouts(workers[i], maxPlayouts, timer)));
+    }
+    try {
+      new Playouts(workers[0], maxPlayouts, timer).run();
+    } finally {
+      stop.set(true);
+      for (Future<?> future : futures) {
+        waitFor(future);
+      }
+      nanos = System.nanoTime() - start;
+    }
+
+    Node best = null;
+    Node[] children = root.getChildren();
+    if (children == null) {
+      // Not even one playout: the heuristic's first move.
+      int[] moves = MoveBuffer.forCurrentThread().get(0);
+      heuristic.getOrderedMoves(new SearchBoard(position, 1), moves);
+      return AbaloneMove.toJumps(moves[0], position.isWhiteTurn());
+    }
+    for (Node child : children) {
+      if (best == null || child.visits > best.visits) {
+        best = child;
+      }
+    }
+    return AbaloneMove.toJumps(best.move, position.isWhiteTurn());
+  }
+
+  /**
+   * Makes the node of {@code position} the root, if it is the previous root, one of its children
+   * or grandchildren. Otherwise starts a new tree.
+   */
+  private void reuseTree(AbalonePosition position) {
+    Node reused = null;
+    if (root != null && !rootPosition.isGameEnd()) {
+      SearchBoard board = new SearchBoard(rootPosition, 2);
+      reused = findNode(root, board, position, 2);
+    }
+    root = reused == null ? new Node(AbaloneMove.NONE) : reused;
+    rootPosition = position;
+  }
+
+  private static Node findNode(Node node, SearchBoard board, AbalonePosition position,
+      int depth) {
+    if (board.getHash() == position.getHash() && board.toPosition().equals(position)) {
+      return node;
+    }
+    Node[] children = node.getChildren();
+    if (depth == 0 || children == null) {
+      return null;
+    }
+    for (Node child : children) {
+      board.makeMove(child.move);
+      Node found = board.isGameEnd() ? null : findNode(child, board, position, depth - 1);
+      board.unmakeMove();
+      if (found != null) {
+        return found;
+      }
+    }
+    return null;
+  }
+
+  private static void waitFor(Future<?> future) {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Playout thread failed", e.getCause());
+    }
+  }
+
+  /**
+   * Stops the playout threads. The search cannot be used afterwards.
+   */
+  public void shutdown() {
+    if (executor != null) {
+      executor.shutdown();
+    }
+  }
+
+  private class Playouts implements Runnable {
+    private final Worker worker;
+    private final int maxPlayouts;
+    private final Timer timer;
+
+    Playouts(Worker worker, int maxPlayouts, Timer timer) {
+      this.worker = worker;
+      this.maxPlayouts = maxPlayouts;
+      this.timer = timer;
+    }
+
+    @Override
+    public void run() {
+      worker.board.setPosition(rootPosition);
+      while (!stop.get() && !timer.didTimeout() && !timer.shouldStopDeepening()) {
+        if (playouts.incrementAndGet() > maxPlayouts) {
+          playouts.decrementAndGet();
+          return;
+        }
+        worker.runPlayout(root);
+      }
+    }
+  }
+
+  /**
+   * The state one thread needs for its playouts.
+   */
+  private class Worker {
+    private final SearchBoard board =
+        new SearchBoard(new AbalonePosition(0L, 0L, true), MAX_TREE_DEPTH + MAX_PLAYOUT_PLIES);
+    private final int[] moves = new int[MoveBuffer.MAX_MOVES];
+    private final Node[] path = new Node[MAX_TREE_DEPTH + 1];
+    private long random;
+
+    Worker(long seed) {
+      this.random = seed;
+    }
+
+    void runPlayout(Node root) {
+      boolean rootWhite = board.isWhiteTurn();
+      int length = 0;
+      Node node = root;
+      addVisit(node);
+      path[length++] = node;
+      while (!board.isGameEnd() && length <= MAX_TREE_DEPTH) {
+        Node[] children = expand(node);
+        if (children.length == 0) {
+          break;
+        }
+        node = select(node, children);
+        addVisit(node);
+        path[length++] = node;
+        board.makeMove(node.move);
+        if (node.visits == 1) {
+          // A new node: play out from here.
+          break;
+        }
+      }
+      int whiteHalfPoints = playOut();
+      // path[i] is reached by a move of the root player when i is odd.
+      for (int i = 1; i < length; i++) {
+        boolean whiteMoved = (i % 2 == 1) == rootWhite;
+        addPoints(path[i], whiteMoved ? whiteHalfPoints : 2 - whiteHalfPoints);
+      }
+      board.setPosition(rootPosition);
+    }
+
+    private Node[] expand(Node node) {
+      synchronized (node) {
+        if (node.children == null) {
+          int count = heuristic.getOrderedMoves(board, moves);
+          Node[] children = new Node[count];
+          for (int i = 0; i < count; i++) {
+            children[i] = new Node(moves[i]);
+          }
+          node.children = children;
+        }
+        return node.children;
+      }
+    }
+
+    /**
+     * UCT: the unvisited children first, in the heuristic's order, then the best win rate plus
+     * exploration bonus.
+     */
+    private Node select(Node parent, Node[] children) {
+      double logVisits = Math.log(Math.max(1, parent.visits));
+      Node best = null;
+      double bestValue = Double.NEGATIVE_INFINITY;
+      for (Node child : children) {
+        int visits = child.visits;
+        if (visits == 0) {
+          return child;
+        }
+        double value = child.halfPoints / (2.0 * visits)
+            + EXPLORATION * Math.sqrt(logVisits / visits);
+        if (value > bestValue) {
+          best = child;
+          bestValue = value;
+        }
+      }
+      return best;
+    }
+
+    /**
+     * Plays from the current board, and undoes the moves.
+     * @return 2 if white wins, 0 if black wins, and 1 when it is not decided.
+     */
+    private int playOut() {
+      int plies = 0;
+      while (!board.isGameEnd() && plies < MAX_PLAYOUT_PLIES) {
+        int count = MoveGenerator.generateMoves(board.getMine(), board.getOpponent(), moves);
+        if (count == 0) {
+          break;
+        }
+        board.makeMove(chooseMove(count));
+        plies++;
+      }
+      int result;
+      if (board.isGameEnd()) {
+        result = board.isEjectedWhite() ? 0 : 2;
+      } else {
+        int value = heuristic.getStateValue(board);
+        result = value > 0 ? 2 : value < 0 ? 0 : 1;
+      }
+      for (int i = 0; i < plies; i++) {
+        board.unmakeMove();
+      }
+      return result;
+    }
+
+    /**
+     * An ejecting move if there is one, else half of the time a random push (if any), else any
+     * random move.
+     */
+    private int chooseMove(int count) {
+      int pushes = 0;
+      for (int i = 0; i < count; i++) {
+        int move = moves[i];
+        if (AbaloneMove.isEjecting(move)) {
+          return move;
+        }
+        if (AbaloneMove.getOpponentCount(move) > 0) {
+          // Keep the pushes at the front.
+          moves[i] = moves[pushes];
+          moves[pushes++] = move;
+        }
+      }
+      long next = nextRandom();
+      if (pushes > 0 && (next & 1) == 0) {
+        return moves[(int) ((next >>> 1) % pushes)];
+      }
+      return moves[(int) ((next >>> 1) % count)];
+    }
+
+    private long nextRandom() {
+      // xorshift64
+      random ^= random << 13;
+      random ^= random >>> 7;
+      random ^= random << 17;
+      return random;
+    }
+  }
+
+  /**
+   * Counts the visit before the playout is done, which is the virtual loss.
+   */
+  private static void addVisit(Node node) {
+    synchronized (node) {
+      node.visits++;
+    }
+  }
+
+  private static void addPoints(Node node, int halfPoints) {
+    synchronized (node) {
+      node.halfPoints += halfPoints;
+    }
+  }
+}
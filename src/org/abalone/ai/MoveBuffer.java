@@ -0,0 +1,51 @@
+package org.abalone.ai;
+
+import org.abalone.client.MoveGenerator;
+
+/**
+ * Preallocated move lists, one per ply, that the move generator writes {@link
+ * org.abalone.client.AbaloneMove}s into. Each list is overwritten from its start for every
+ * position, so the memory used is fixed when the buffer is created: {@code maxPly * maxMoves}
+ * ints.<br>
+ * A buffer must only be used by one thread at a time. {@link Searcher}s own one each, other
+ * callers can use {@link #forCurrentThread()}.
+ */
+public final class MoveBuffer {
+  /** More than the legal moves of any position. */
+  public static final int MAX_MOVES = MoveGenerator.MAX_MOVES;
+
+  private static final ThreadLocal<MoveBuffer> THREAD_BUFFERS = new ThreadLocal<MoveBuffer>() {
+    @Override
+    protected MoveBuffer initialValue() {
+      return new MoveBuffer(1, MAX_MOVES);
+    }
+  };
+
+  private final int[][] moves;
+
+  public MoveBuffer(int maxPly, int maxMoves) {
+    if (maxPly <= 0 || maxMoves <= 0) {
+      throw new IllegalArgumentException("maxPly and maxMoves should be positive");
+    }
+    moves = new int[maxPly][maxMoves];
+  }
+
+  /**
+   * @return the one-ply buffer of the calling thread, for generating the moves of a single
+   * position outside of a search.
+   */
+  public static MoveBuffer forCurrentThread() {
+    return THREAD_BUFFERS.get();
+  }
+
+  /**
+   * @return the list for {@code ply}. Its length is the ceiling on the number of moves.
+   */
+  public int[] get(int ply) {
+    return moves[ply];
+  }
+
+  public int getMaxPly() {
+    return moves.length;
+  }
+}
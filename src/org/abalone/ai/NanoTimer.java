@@ -0,0 +1,79 @@
+package org.abalone.ai;
+
+/**
+ * A {@link Timer} on {@link System#nanoTime()} that only reads the clock once every
+ * {@code checkInterval} calls to {@link #didTimeout()}, since the search calls it at every node.
+ * The hard deadline is therefore noticed at most {@code checkInterval} nodes late.<br>
+ * Negative milliseconds means there will never be a timeout. Once the hard deadline has passed,
+ * {@link #didTimeout()} keeps returning true.<br>
+ * The timer may be shared by several search threads: the call countdown is not synchronized, so
+ * the threads may read the clock a little more or less often, but the expired flag is seen by all
+ * of them.
+ */
+public class NanoTimer implements Timer {
+  public static final int DEFAULT_CHECK_INTERVAL = 1024;
+
+  private static final long NANOS_PER_MILLI = 1000000L;
+
+  private final long start;
+  private final long softNanos;
+  private final long hardNanos;
+  private final int checkInterval;
+  private int countdown;
+  private volatile boolean expired;
+
+  /**
+   * A timer whose soft and hard deadlines are the same.
+   */
+  public NanoTimer(long milliseconds) {
+    this(milliseconds, milliseconds, DEFAULT_CHECK_INTERVAL);
+  }
+
+  /**
+   * @param softMilliseconds after which no new iteration should start.
+   * @param hardMilliseconds after which the search aborts.
+   * @param checkInterval the number of {@link #didTimeout()} calls per clock read.
+   */
+  public NanoTimer(long softMilliseconds, long hardMilliseconds, int checkInterval) {
+    if (checkInterval <= 0) {
+      throw new IllegalArgumentException("checkInterval should be positive");
+    }
+    this.start = System.nanoTime();
+    this.softNanos = softMilliseconds < 0 ? -1 : softMilliseconds * NANOS_PER_MILLI;
+    this.hardNanos = hardMilliseconds < 0 ? -1 : hardMilliseconds * NANOS_PER_MILLI;
+    this.checkInterval = checkInterval;
+    this.countdown = checkInterval;
+  }
+
+  /**
+   * @return the milliseconds since the timer was created.
+   */
+  public long getElapsedMilliseconds() {
+    return (System.nanoTime() - start) / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public boolean didTimeout() {
+    if (expired) {
+      return true;
+    }
+    if (hardNanos < 0 || --countdown > 0) {
+      return false;
+    }
+    countdown = checkInterval;
+    if (System.nanoTime() - start >= hardNanos) {
+      expired = true;
+    }
+    return expired;
+  }
+
+  @Override
+  public boolean shouldStopDeepening() {
+    // Called once per iteration, so the clock is always read.
+    return expired || (softNanos >= 0 && System.nanoTime() - start >= softNanos);
+  }
+
+  @Override
+  public void iterationFinished(int depth, int bestMove, int bestScore, long nodes) {
+  }
+}
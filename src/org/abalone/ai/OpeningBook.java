@@ -0,0 +1,262 @@
+package org.abalone.ai;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import org.abalone.ai.TranspositionTable.ReplacementPolicy;
+import org.abalone.client.AbaloneConstants;
+import org.abalone.client.AbaloneMove;
+import org.abalone.client.AbalonePosition;
+import org.abalone.client.AbaloneState;
+import org.abalone.client.MoveGenerator;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * The moves to play in the positions that follow the initial board, so the first moves of a game
+ * are not searched again every time. The book is built offline from self-play games
+ * ({@link #main}), and {@link AlphaBetaPruning#findBestMove} plays its move when the position is
+ * in it.<br>
+ * The file is a header followed by entries sorted by position hash, each a hash, an
+ * {@link AbaloneMove} and the number of times the move was chosen, all big-endian:
+ * <pre>
+ * int magic, int version, int entry count, int unused
+ * long hash, int move, int weight   (entry count times)
+ * </pre>
+ * It is mapped in memory rather than read, so a lookup is a binary search over the file pages and
+ * the book takes no heap. Since only the hash is stored, a move that is not legal in the position
+ * (a hash collision) is ignored.
+ */
+public class OpeningBook {
+  static final int MAGIC = 0x41424F4B;
+  static final int VERSION = 1;
+  static final int HEADER_BYTES = 16;
+  static final int ENTRY_BYTES = 16;
+
+  /** The length of the self-play games, in plies. */
+  static final int DEFAULT_PLIES = 10;
+  /** One move out of that many is a random good move instead of the searched one. */
+  static final int VARIETY = 4;
+  /** The random moves are picked among the heuristic's first moves. */
+  static final int VARIETY_WIDTH = 4;
+
+  private final MappedByteBuffer buffer;
+  private final int size;
+
+  private OpeningBook(MappedByteBuffer buffer, int size) {
+    this.buffer = buffer;
+    this.size = size;
+  }
+
+  /**
+   * Maps {@code file} in memory. The mapping stays valid after the file is closed.
+   * @throws IOException if the file cannot be read or is not an opening book.
+   */
+  public static OpeningBook open(File file) throws IOException {
+    try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+      FileChannel channel = input.getChannel();
+      long length = channel.size();
+      if (length < HEADER_BYTES) {
+        throw new IOException(file + " is not an opening book");
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+      int size = buffer.getInt(8);
+      if (buffer.getInt(0) != MAGIC || size < 0
+          || length != HEADER_BYTES + (long) size * ENTRY_BYTES) {
+        throw new IOException(file + " is not an opening book");
+      }
+      if (buffer.getInt(4) != VERSION) {
+        throw new IOException(file + " has book version " + buffer.getInt(4) + ", expected "
+            + VERSION);
+      }
+      return new OpeningBook(buffer, size);
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return the book move of {@code position}, or {@link AbaloneMove#NONE} if it is not in the
+   * book.
+   */
+  public int getMove(AbalonePosition position) {
+    if (position.isGameEnd()) {
+      return AbaloneMove.NONE;
+    }
+    int index = find(position.getHash());
+    if (index < 0) {
+      return AbaloneMove.NONE;
+    }
+    int move = buffer.getInt(HEADER_BYTES + index * ENTRY_BYTES + 8);
+    int[] moves = MoveBuffer.forCurrentThread().get(0);
+    int count = MoveGenerator.generateMoves(position.getMine(), position.getOpponent(), moves);
+    for (int i = 0; i < count; i++) {
+      if (moves[i] == move) {
+        return move;
+      }
+    }
+    return AbaloneMove.NONE;
+  }
+
+  /**
+   * @return the index of the entry of {@code hash}, or -1.
+   */
+  private int find(long hash) {
+    int low = 0;
+    int high = size - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      long middleHash = buffer.getLong(HEADER_BYTES + middle * ENTRY_BYTES);
+      if (middleHash < hash) {
+        low = middle + 1;
+      } else if (middleHash > hash) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Collects the moves of a book and writes its file. A position keeps the move it was given
+   * most often.
+   */
+  public static class Builder {
+    // hash -> move -> weight
+    private final Map<Long, Map<Integer, Integer>> moves = Maps.newHashMap();
+
+    public Builder add(AbalonePosition position, int move) {
+      Map<Integer, Integer> weights = moves.get(position.getHash());
+      if (weights == null) {
+        weights = Maps.newHashMap();
+        moves.put(position.getHash(), weights);
+      }
+      Integer weight = weights.get(move);
+      weights.put(move, weight == null ? 1 : weight + 1);
+      return this;
+    }
+
+    /**
+     * @return the move added most often for {@code position}, or {@link AbaloneMove#NONE}.
+     */
+    public int getMove(AbalonePosition position) {
+      Map<Integer, Integer> weights = moves.get(position.getHash());
+      if (weights == null) {
+        return AbaloneMove.NONE;
+      }
+      return getBest(weights).getKey();
+    }
+
+    public int size() {
+      return moves.size();
+    }
+
+    public void write(File file) throws IOException {
+      long[] hashes = new long[moves.size()];
+      int i = 0;
+      for (long hash : moves.keySet()) {
+        hashes[i++] = hash;
+      }
+      Arrays.sort(hashes);
+      try (DataOutputStream output = new DataOutputStream(
+          new BufferedOutputStream(new FileOutputStream(file)))) {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(hashes.length);
+        output.writeInt(0);
+        for (long hash : hashes) {
+          Map.Entry<Integer, Integer> best = getBest(moves.get(hash));
+          output.writeLong(hash);
+          output.writeInt(best.getKey());
+          output.writeInt(best.getValue());
+        }
+      }
+    }
+
+    private static Map.Entry<Integer, Integer> getBest(Map<Integer, Integer> weights) {
+      Map.Entry<Integer, Integer> best = null;
+      for (Map.Entry<Integer, Integer> entry : weights.entrySet()) {
+        if (best == null || entry.getValue() > best.getValue()) {
+          best = entry;
+        }
+      }
+      return best;
+    }
+  }
+
+  /**
+   * Plays {@code games} self-play games of {@code plies} plies from the initial board, searching
+   * each new position to {@code depth}, and adds every searched move to {@code builder}. To reach
+   * more positions, one move out of {@link #VARIETY} is a random one among the heuristic's best.
+   */
+  public static void selfPlay(Builder builder, Heuristic heuristic, int games, int plies,
+      int depth, long seed) {
+    AlphaBetaPruning search = new AlphaBetaPruning(heuristic, new TranspositionTable(
+        AlphaBetaPruning.DEFAULT_TABLE_SIZE_LOG2, ReplacementPolicy.DEPTH_PREFERRED));
+    Random random = new Random(seed);
+    ArrayList<String> playerIds = Lists.newArrayList("0", "1");
+    AbalonePosition start = AbalonePosition.fromState(new AbaloneState(AbaloneConstants.WTurn,
+        playerIds, AbaloneConstants.initialBoard, Lists.<ArrayList<Integer>>newArrayList(), null));
+    for (int game = 0; game < games; game++) {
+      AbalonePosition position = start;
+      for (int ply = 0; ply < plies && !position.isGameEnd(); ply++) {
+        int move = builder.getMove(position);
+        if (move == AbaloneMove.NONE) {
+          ArrayList<ArrayList<Integer>> jumps = search.findBestMove(position.toState(playerIds,
+              Lists.<ArrayList<Integer>>newArrayList()), depth, new DateTimer(-1));
+          move = findMove(position, jumps);
+        }
+        builder.add(position, move);
+        if (random.nextInt(VARIETY) == 0) {
+          int[] moves = MoveBuffer.forCurrentThread().get(0);
+          int count = heuristic.getOrderedMoves(new SearchBoard(position, 1), moves);
+          move = moves[random.nextInt(Math.min(count, VARIETY_WIDTH))];
+        }
+        position = position.applyJumps(AbaloneMove.toJumps(move, position.isWhiteTurn()));
+      }
+    }
+  }
+
+  /**
+   * @return the move of {@code position} whose jumps are {@code jumps}.
+   */
+  private static int findMove(AbalonePosition position, ArrayList<ArrayList<Integer>> jumps) {
+    int[] moves = MoveBuffer.forCurrentThread().get(0);
+    int count = MoveGenerator.generateMoves(position.getMine(), position.getOpponent(), moves);
+    for (int i = 0; i < count; i++) {
+      if (AbaloneMove.toJumps(moves[i], position.isWhiteTurn()).equals(jumps)) {
+        return moves[i];
+      }
+    }
+    throw new IllegalStateException("The search returned an illegal move " + jumps);
+  }
+
+  /**
+   * Builds the book of the initial board. Arguments: the file, the number of games (default 100),
+   * of plies per game (default {@link #DEFAULT_PLIES}) and the search depth (default 4).
+   */
+  public static void main(String[] args) throws IOException {
+    File file = new File(args.length > 0 ? args[0] : "opening.book");
+    int games = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+    int plies = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_PLIES;
+    int depth = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+    Builder builder = new Builder();
+    selfPlay(builder, new HeuristicImpl(), games, plies, depth, 1);
+    builder.write(file);
+    System.out.println(builder.size() + " positions written to " + file);
+  }
+}
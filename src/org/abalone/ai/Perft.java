@@ -0,0 +1,172 @@
+package org.abalone.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.abalone.client.AbaloneConstants;
+import org.abalone.client.AbalonePosition;
+import org.abalone.client.AbaloneState;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Perft: counts the positions reached after exactly {@code depth} moves, following the move set
+ * of a {@link Heuristic} on a {@link SearchBoard}. The counts pin down the move generation: a
+ * faster generator or another board representation must give the same numbers. The time taken
+ * gives the raw move generation throughput.<br>
+ * A position where the game has ended is not expanded, so it only counts at its own depth.
+ */
+public class Perft {
+
+  public static class Result {
+    private final long nodes;
+    private final long nanos;
+
+    Result(long nodes, long nanos) {
+      this.nodes = nodes;
+      this.nanos = nanos;
+    }
+
+    /**
+     * @return the number of positions at the requested depth.
+     */
+    public long getNodes() {
+      return nodes;
+    }
+
+    public long getNanos() {
+      return nanos;
+    }
+
+    public long getNodesPerSecond() {
+      return nanos == 0 ? 0 : nodes * 1000000000L / nanos;
+    }
+
+    @Override
+    public String toString() {
+      return nodes + " nodes in " + nanos / 1000000 + " ms, " + getNodesPerSecond() + " nps";
+    }
+  }
+
+  private final Heuristic heuristic;
+
+  public Perft(Heuristic heuristic) {
+    this.heuristic = heuristic;
+  }
+
+  /**
+   * Counts on the calling thread.
+   */
+  public Result run(AbalonePosition position, int depth) {
+    long start = System.nanoTime();
+    long nodes = count(new SearchBoard(position, depth + 1), new MoveBuffer(depth + 1,
+        MoveBuffer.MAX_MOVES), depth);
+    return new Result(nodes, System.nanoTime() - start);
+  }
+
+  /**
+   * Counts the subtree of each root move as a separate task of {@code pool}.
+   */
+  public Result run(AbalonePosition position, int depth, ForkJoinPool pool) {
+    long start = System.nanoTime();
+    long nodes = pool.invoke(new RootTask(position, depth));
+    return new Result(nodes, System.nanoTime() - start);
+  }
+
+  private long count(SearchBoard board, MoveBuffer buffer, int depth) {
+    if (depth == 0) {
+      return 1;
+    }
+    if (board.isGameEnd()) {
+      return 0;
+    }
+    int[] moves = buffer.get(board.getPly());
+    int count = heuristic.getOrderedMoves(board, moves);
+    if (depth == 1) {
+      return count;
+    }
+    long nodes = 0;
+    for (int i = 0; i < count; i++) {
+      board.makeMove(moves[i]);
+      nodes += count(board, buffer, depth - 1);
+      board.unmakeMove();
+    }
+    return nodes;
+  }
+
+  private class RootTask extends RecursiveTask<Long> {
+    private static final long serialVersionUID = 1L;
+
+    private final AbalonePosition position;
+    private final int depth;
+
+    RootTask(AbalonePosition position, int depth) {
+      this.position = position;
+      this.depth = depth;
+    }
+
+    @Override
+    protected Long compute() {
+      SearchBoard board = new SearchBoard(position, 1);
+      if (depth == 0 || board.isGameEnd()) {
+        return depth == 0 ? 1L : 0L;
+      }
+      int[] moves = new int[MoveBuffer.MAX_MOVES];
+      int count = heuristic.getOrderedMoves(board, moves);
+      List<MoveTask> tasks = Lists.newArrayList();
+      for (int i = 0; i < count; i++) {
+        tasks.add(new MoveTask(position, moves[i], depth - 1));
+      }
+      invokeAll(tasks);
+      long nodes = 0;
+      for (MoveTask task : tasks) {
+        nodes += task.join();
+      }
+      return nodes;
+    }
+  }
+
+  private class MoveTask extends RecursiveTask<Long> {
+    private static final long serialVersionUID = 1L;
+
+    private final AbalonePosition position;
+    private final int move;
+    private final int depth;
+
+    MoveTask(AbalonePosition position, int move, int depth) {
+      this.position = position;
+      this.move = move;
+      this.depth = depth;
+    }
+
+    @Override
+    protected Long compute() {
+      SearchBoard board = new SearchBoard(position, depth + 2);
+      board.makeMove(move);
+      return count(board, new MoveBuffer(depth + 2, MoveBuffer.MAX_MOVES), depth);
+    }
+  }
+
+  /**
+   * Prints the counts from the initial board up to the given depth (default 4), on one thread
+   * and on all the available processors.
+   */
+  public static void main(String[] args) {
+    int maxDepth = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+    AbalonePosition start = AbalonePosition.fromState(new AbaloneState(AbaloneConstants.WTurn,
+        Lists.newArrayList("0", "1"), AbaloneConstants.initialBoard,
+        Lists.<ArrayList<Integer>>newArrayList(), null));
+    Perft perft = new Perft(new HeuristicImpl());
+    ForkJoinPool pool = new ForkJoinPool();
+    try {
+      for (int depth = 1; depth <= maxDepth; depth++) {
+        System.out.println("perft(" + depth + ") " + perft.run(start, depth) + " | parallel "
+            + perft.run(start, depth, pool));
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package org.abalone.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.abalone.client.AbalonePosition;
+
+/**
+ * A {@link Heuristic} that scores a position from the evaluation terms {@link SearchBoard} keeps up
+ * to date while moves are made, so a leaf costs a few multiplications instead of a move
+ * generation: pieces near the center, next to each other and away from the edge are better.<br>
+ * It does not look for pushes, the quiescence search of {@link Searcher} plays them instead. The
+ * moves are ordered like {@link HeuristicImpl} does.
+ */
+public class PositionalHeuristic implements Heuristic {
+  /** Only matters in a finished game, where the score is a win anyway. */
+  static final int PIECE_WEIGHT = 100000;
+  /** Per step towards the center. */
+  static final int CENTER_WEIGHT = 100;
+  /** Per pair of neighbor pieces. */
+  static final int COHESION_WEIGHT = 30;
+  /** Per way out of the board. */
+  static final int EDGE_WEIGHT = 60;
+
+  private final Heuristic ordering = new HeuristicImpl();
+
+  @Override
+  public int getStateValue(AbalonePosition position) {
+    if (position.isGameEnd()) {
+      return position.isEjectedWhite() ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+    }
+    long white = position.getWhite();
+    long black = position.getBlack();
+    return getValue(Long.bitCount(white) - Long.bitCount(black),
+        SearchBoard.getCenterDistance(white) - SearchBoard.getCenterDistance(black),
+        SearchBoard.getCohesion(white) - SearchBoard.getCohesion(black),
+        SearchBoard.getEdgeExits(white) - SearchBoard.getEdgeExits(black));
+  }
+
+  @Override
+  public int getStateValue(SearchBoard board) {
+    if (board.isGameEnd()) {
+      return board.isEjectedWhite() ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+    }
+    return getValue(board.getPieceDifference(), board.getCenterDistance(), board.getCohesion(),
+        board.getEdgeExits());
+  }
+
+  private static int getValue(int pieces, int centerDistance, int cohesion, int edgeExits) {
+    return PIECE_WEIGHT * pieces - CENTER_WEIGHT * centerDistance + COHESION_WEIGHT * cohesion
+        - EDGE_WEIGHT * edgeExits;
+  }
+
+  @Override
+  public List<ArrayList<ArrayList<Integer>>> getOrderedMoves(AbalonePosition position) {
+    return ordering.getOrderedMoves(position);
+  }
+
+  @Override
+  public int getOrderedMoves(SearchBoard board, int[] moves) {
+    return ordering.getOrderedMoves(board, moves);
+  }
+}
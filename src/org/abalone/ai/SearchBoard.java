@@ -0,0 +1,309 @@
+package org.abalone.ai;
+
+import org.abalone.client.AbaloneGeometry;
+import org.abalone.client.AbaloneMove;
+import org.abalone.client.AbalonePosition;
+
+/**
+ * Mutable board used inside the search. {@link #makeMove(int)} changes the board in place and
+ * pushes what it overwrote on an undo stack, {@link #unmakeMove()} pops it. All the stacks are
+ * allocated in the constructor, so searching does not allocate.<br>
+ * {@link AbalonePosition} (and {@link org.abalone.client.AbaloneState}) stay the immutable types
+ * at the boundary of the search.<br>
+ * The board also keeps a few evaluation terms up to date as the pieces move, each as the white
+ * value minus the black value, so that a {@link Heuristic} can score a position without looking
+ * at the whole board: the sum of the {@link AbaloneGeometry#centerDistance}s of the pieces, the
+ * number of pairs of neighbor pieces of the same color (cohesion), and the sum of the
+ * {@link AbaloneGeometry#edgeExits} of the pieces (edge danger).
+ */
+public class SearchBoard {
+  private long white;
+  private long black;
+  private boolean whiteTurn;
+  private long hash;
+  // (square << 1 | 1 if white) of the piece pushed out of the board, or -1.
+  private int ejected;
+  private int centerDistance;
+  private int cohesion;
+  private int edgeExits;
+
+  private final long[] undoWhite;
+  private final long[] undoBlack;
+  private final long[] undoHash;
+  private final int[] undoEjected;
+  private final int[] undoCenterDistance;
+  private final int[] undoCohesion;
+  private final int[] undoEdgeExits;
+  private int ply;
+
+  public SearchBoard(AbalonePosition position, int maxPly) {
+    undoWhite = new long[maxPly];
+    undoBlack = new long[maxPly];
+    undoHash = new long[maxPly];
+    undoEjected = new int[maxPly];
+    undoCenterDistance = new int[maxPly];
+    undoCohesion = new int[maxPly];
+    undoEdgeExits = new int[maxPly];
+    setPosition(position);
+  }
+
+  /**
+   * Resets the board to {@code position} and empties the undo stack.
+   */
+  public void setPosition(AbalonePosition position) {
+    white = position.getWhite();
+    black = position.getBlack();
+    whiteTurn = position.isWhiteTurn();
+    hash = position.getHash();
+    ejected = position.isGameEnd()
+        ? position.getEjectedSquare() << 1 | (position.isEjectedWhite() ? 1 : 0) : -1;
+    centerDistance = getCenterDistance(white) - getCenterDistance(black);
+    cohesion = getCohesion(white) - getCohesion(black);
+    edgeExits = getEdgeExits(white) - getEdgeExits(black);
+    ply = 0;
+  }
+
+  public AbalonePosition toPosition() {
+    return new AbalonePosition(white, black, whiteTurn,
+        ejected < 0 ? AbaloneGeometry.NO_CELL : ejected >> 1, isEjectedWhite());
+  }
+
+  /**
+   * Plays the {@link AbaloneMove} {@code move} for the player to move and passes the turn.
+   */
+  public void makeMove(int move) {
+    pushUndo();
+    long oldWhite = white;
+    long oldBlack = black;
+
+    int direction = AbaloneMove.getDirection(move);
+    int ownCount = AbaloneMove.getOwnCount(move);
+    if (AbaloneMove.isBroadside(move)) {
+      makeBroadsideMove(move, direction, ownCount);
+      updateTerms(oldWhite, oldBlack);
+      return;
+    }
+    int opponentCount = AbaloneMove.getOpponentCount(move);
+    // The own group moves by one: its last cell is emptied and the cell in front of it is taken.
+    int last = AbaloneMove.getCell(move);
+    int front = last;
+    for (int i = 0; i < ownCount; i++) {
+      front = AbaloneGeometry.neighbor(front, direction);
+    }
+    long mine = whiteTurn ? white : black;
+    long opponent = whiteTurn ? black : white;
+    mine = (mine & ~(1L << last)) | (1L << front);
+    hash ^= AbalonePosition.zobristKey(last, whiteTurn)
+        ^ AbalonePosition.zobristKey(front, whiteTurn);
+    if (opponentCount > 0) {
+      // Same for the pushed group, whose first cell has just been taken by us.
+      int opponentLast = front;
+      int opponentFront = front;
+      for (int i = 0; i < opponentCount; i++) {
+        opponentLast = opponentFront;
+        opponentFront = AbaloneGeometry.neighbor(opponentFront, direction);
+      }
+      opponent &= ~(1L << front);
+      hash ^= AbalonePosition.zobristKey(front, !whiteTurn);
+      if (opponentFront == AbaloneGeometry.NO_CELL) {
+        int square = AbaloneGeometry.ejectSquare(opponentLast, direction);
+        ejected = square << 1 | (whiteTurn ? 0 : 1);
+      } else {
+        opponent |= 1L << opponentFront;
+        hash ^= AbalonePosition.zobristKey(opponentFront, !whiteTurn);
+      }
+    }
+    white = whiteTurn ? mine : opponent;
+    black = whiteTurn ? opponent : mine;
+    whiteTurn = !whiteTurn;
+    hash ^= AbalonePosition.zobristTurnKey();
+    updateTerms(oldWhite, oldBlack);
+  }
+
+  /**
+   * Every piece of the line moves sideways to an empty cell.
+   */
+  private void makeBroadsideMove(int move, int direction, int ownCount) {
+    int lineDirection = AbaloneMove.getLineDirection(move);
+    long mine = whiteTurn ? white : black;
+    int cell = AbaloneMove.getCell(move);
+    for (int i = 0; i < ownCount; i++) {
+      int target = AbaloneGeometry.neighbor(cell, direction);
+      mine = (mine & ~(1L << cell)) | (1L << target);
+      hash ^= AbalonePosition.zobristKey(cell, whiteTurn)
+          ^ AbalonePosition.zobristKey(target, whiteTurn);
+      cell = AbaloneGeometry.neighbor(cell, lineDirection);
+    }
+    if (whiteTurn) {
+      white = mine;
+    } else {
+      black = mine;
+    }
+    whiteTurn = !whiteTurn;
+    hash ^= AbalonePosition.zobristTurnKey();
+  }
+
+  /**
+   * Passes the turn without moving, for null-move pruning. Undone by {@link #unmakeMove()} like
+   * any other move.
+   */
+  public void makeNullMove() {
+    pushUndo();
+    whiteTurn = !whiteTurn;
+    hash ^= AbalonePosition.zobristTurnKey();
+  }
+
+  public void unmakeMove() {
+    ply--;
+    white = undoWhite[ply];
+    black = undoBlack[ply];
+    hash = undoHash[ply];
+    ejected = undoEjected[ply];
+    centerDistance = undoCenterDistance[ply];
+    cohesion = undoCohesion[ply];
+    edgeExits = undoEdgeExits[ply];
+    whiteTurn = !whiteTurn;
+  }
+
+  private void pushUndo() {
+    undoWhite[ply] = white;
+    undoBlack[ply] = black;
+    undoHash[ply] = hash;
+    undoEjected[ply] = ejected;
+    undoCenterDistance[ply] = centerDistance;
+    undoCohesion[ply] = cohesion;
+    undoEdgeExits[ply] = edgeExits;
+    ply++;
+  }
+
+  /**
+   * Updates the evaluation terms from the few cells that changed since the move started.
+   */
+  private void updateTerms(long oldWhite, long oldBlack) {
+    centerDistance += getCenterDistance(white & ~oldWhite) - getCenterDistance(oldWhite & ~white)
+        - getCenterDistance(black & ~oldBlack) + getCenterDistance(oldBlack & ~black);
+    edgeExits += getEdgeExits(white & ~oldWhite) - getEdgeExits(oldWhite & ~white)
+        - getEdgeExits(black & ~oldBlack) + getEdgeExits(oldBlack & ~black);
+    cohesion += getCohesionChange(oldWhite, white) - getCohesionChange(oldBlack, black);
+  }
+
+  static int getCenterDistance(long pieces) {
+    int sum = 0;
+    for (; pieces != 0; pieces &= pieces - 1) {
+      sum += AbaloneGeometry.centerDistance(Long.numberOfTrailingZeros(pieces));
+    }
+    return sum;
+  }
+
+  static int getEdgeExits(long pieces) {
+    int sum = 0;
+    for (; pieces != 0; pieces &= pieces - 1) {
+      sum += AbaloneGeometry.edgeExits(Long.numberOfTrailingZeros(pieces));
+    }
+    return sum;
+  }
+
+  /**
+   * @return the number of pairs of neighbors in {@code pieces}.
+   */
+  static int getCohesion(long pieces) {
+    return getLinks(pieces, 0L);
+  }
+
+  /**
+   * @return how the number of pairs of neighbors changes from {@code before} to {@code after},
+   * looking only at the pieces that moved.
+   */
+  private static int getCohesionChange(long before, long after) {
+    long kept = before & after;
+    return getLinks(after & ~before, kept) - getLinks(before & ~after, kept);
+  }
+
+  /**
+   * @return the number of pairs of neighbors with a piece of {@code moved} and a piece of
+   * {@code moved} or {@code kept}, each pair counted once.
+   */
+  private static int getLinks(long moved, long kept) {
+    int links = 0;
+    for (long pieces = moved; pieces != 0; pieces &= pieces - 1) {
+      int cell = Long.numberOfTrailingZeros(pieces);
+      long neighbors = AbaloneGeometry.neighborMask(cell);
+      // Within moved, only the neighbors after this cell, so that a pair is not counted twice.
+      links += Long.bitCount(neighbors & kept)
+          + Long.bitCount(neighbors & moved & (-2L << cell));
+    }
+    return links;
+  }
+
+  public long getWhite() {
+    return white;
+  }
+
+  public long getBlack() {
+    return black;
+  }
+
+  public long getMine() {
+    return whiteTurn ? white : black;
+  }
+
+  public long getOpponent() {
+    return whiteTurn ? black : white;
+  }
+
+  public boolean isWhiteTurn() {
+    return whiteTurn;
+  }
+
+  public long getHash() {
+    return hash;
+  }
+
+  public boolean isGameEnd() {
+    return ejected >= 0;
+  }
+
+  public boolean isEjectedWhite() {
+    return ejected >= 0 && (ejected & 1) != 0;
+  }
+
+  /**
+   * @return white's pieces minus black's, 0 until a piece is pushed out.
+   */
+  public int getPieceDifference() {
+    return Long.bitCount(white) - Long.bitCount(black);
+  }
+
+  /**
+   * @return the sum of the distances to the center of white's pieces, minus black's.
+   */
+  public int getCenterDistance() {
+    return centerDistance;
+  }
+
+  /**
+   * @return the number of pairs of neighbor white pieces, minus black's.
+   */
+  public int getCohesion() {
+    return cohesion;
+  }
+
+  /**
+   * @return the number of ways out of the board of white's pieces, minus black's.
+   */
+  public int getEdgeExits() {
+    return edgeExits;
+  }
+
+  /**
+   * @return the number of moves made since the last {@link #setPosition}.
+   */
+  public int getPly() {
+    return ply;
+  }
+
+  @Override
+  public String toString() {
+    return toPosition().toString() + "\nply: " + ply;
+  }
+}
@@ -0,0 +1,93 @@
+package org.abalone.ai;
+
+/**
+ * The settings of the search below the root, shared by all the {@link Searcher}s of an
+ * {@link AlphaBetaPruning} or a {@link LazySmpSearch}.<br>
+ * Null-move pruning and late-move reductions search some moves less deep than asked, so they
+ * reach deeper in the same time but may miss a move the full search would find. They also make
+ * the score of a position depend on the order it is searched in, so with them the parallel and
+ * sequential searches may disagree. {@link #DEFAULT} uses neither; {@link #forDifficulty} picks
+ * them per AI level.
+ */
+public class SearchOptions {
+  public enum Difficulty {
+    EASY, MEDIUM, HARD
+  }
+
+  /** Enough for the pushes of any reasonable exchange. */
+  public static final int DEFAULT_QUIESCENCE_PLIES = 4;
+
+  public static final SearchOptions DEFAULT = new SearchOptions(DEFAULT_QUIESCENCE_PLIES);
+
+  private final int quiescencePlies;
+  private final int nullMoveReduction;
+  private final int lateMoveReduction;
+  private final int lateMoveStart;
+
+  /**
+   * Options without null-move pruning nor late-move reductions.
+   * @param quiescencePlies the most pushes the quiescence search plays below a leaf, 0 to
+   * evaluate the leaves as they are. It caps the quiescence nodes of a leaf without making them
+   * depend on the alpha-beta window, unlike a node count: the search below a leaf gives the same
+   * value in every window, so the parallel and sequential searches still agree.
+   */
+  public SearchOptions(int quiescencePlies) {
+    this(quiescencePlies, 0, 0, 0);
+  }
+
+  /**
+   * @param nullMoveReduction how much less deep the search goes after the player to move passes,
+   * 0 for no null-move pruning.
+   * @param lateMoveReduction how much less deep the late quiet moves are searched first, 0 for no
+   * late-move reductions.
+   * @param lateMoveStart the index in the ordered moves from which the moves are late.
+   */
+  public SearchOptions(int quiescencePlies, int nullMoveReduction, int lateMoveReduction,
+      int lateMoveStart) {
+    if (quiescencePlies < 0 || nullMoveReduction < 0 || lateMoveReduction < 0
+        || lateMoveStart < 0) {
+      throw new IllegalArgumentException("The search options should not be negative");
+    }
+    this.quiescencePlies = quiescencePlies;
+    this.nullMoveReduction = nullMoveReduction;
+    this.lateMoveReduction = lateMoveReduction;
+    this.lateMoveStart = lateMoveStart;
+  }
+
+  /**
+   * @return the options of an AI level: {@link Difficulty#EASY} evaluates the leaves as they are,
+   * {@link Difficulty#MEDIUM} is {@link #DEFAULT}, and {@link Difficulty#HARD} adds null-move
+   * pruning and late-move reductions to look a few plies deeper in the same time.
+   */
+  public static SearchOptions forDifficulty(Difficulty difficulty) {
+    switch (difficulty) {
+      case EASY:
+        return new SearchOptions(0);
+      case MEDIUM:
+        return DEFAULT;
+      case HARD:
+        // HeuristicImpl scores the pushes of the player to move, so a search one ply shorter
+        // is biased: both reductions are even, so the leaves keep the side to move. The pass
+        // counts as a ply like the move it stands in for.
+        return new SearchOptions(DEFAULT_QUIESCENCE_PLIES, 2, 2, 4);
+      default:
+        throw new IllegalArgumentException("Unknown difficulty " + difficulty);
+    }
+  }
+
+  public int getQuiescencePlies() {
+    return quiescencePlies;
+  }
+
+  public int getNullMoveReduction() {
+    return nullMoveReduction;
+  }
+
+  public int getLateMoveReduction() {
+    return lateMoveReduction;
+  }
+
+  public int getLateMoveStart() {
+    return lateMoveStart;
+  }
+}
@@ -0,0 +1,445 @@
+package org.abalone.ai;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.abalone.ai.AlphaBetaPruning.TimeoutException;
+import org.abalone.client.AbaloneGeometry;
+import org.abalone.client.AbaloneMove;
+import org.abalone.client.AbalonePosition;
+import org.abalone.client.AbalonePresenter.Direction;
+import org.abalone.client.MoveGenerator;
+
+/**
+ * The state one thread needs to search below the root: its own {@link SearchBoard} and move lists.
+ * The {@link Heuristic} and the {@link TranspositionTable} are shared with the other searchers of
+ * the same {@link AlphaBetaPruning}.<br>
+ * Each searcher also learns from its own cutoffs to order the quiet moves (the moves that push
+ * nothing), which the heuristic can only order by the number of pieces moved: the two last quiet
+ * moves that cut at a ply (killer moves) are tried first, then the others by how often and how
+ * deep their (cell, direction, number of pieces, inline or broadside) cut before (history). Both
+ * are kept from one search of a root to the next, and faded when the root changes.
+ */
+class Searcher {
+  private static final int KILLERS = 2;
+  private static final int HISTORY_SIZE =
+      AbaloneGeometry.CELL_NUM * Direction.values().length * 4 * 2;
+  // Above this, the history scores are halved so that they cannot overflow.
+  private static final int MAX_HISTORY = 1 << 24;
+
+  private final Heuristic heuristic;
+  private final TranspositionTable transpositionTable;
+  private final SearchOptions options;
+  private final AtomicBoolean stop;
+  private final SearchBoard board;
+  // One move list per ply, reused by every search.
+  private final MoveBuffer moveBuffer =
+      new MoveBuffer(AlphaBetaPruning.MAX_PLY, AlphaBetaPruning.MAX_MOVES);
+  private AbalonePosition root;
+  private Timer timer;
+  private long nodes;
+  // Non zero to shuffle the move ordering a little, see setOrderingSeed.
+  private long random;
+  // Whether the table entries of a deeper search can cut too, see setDeeperCutoffs.
+  private boolean deeperCutoffs;
+  private final int[][] killers = new int[AlphaBetaPruning.MAX_PLY][KILLERS];
+  private final int[] history = new int[HISTORY_SIZE];
+  // The ordering key of each move while sorting the quiet moves of a position.
+  private final int[] orderKeys = new int[AlphaBetaPruning.MAX_MOVES];
+  // Whether the position at each ply was reached by passing, or is being verified after a pass:
+  // no null move is tried there.
+  private final boolean[] noNullMove = new boolean[AlphaBetaPruning.MAX_PLY + 1];
+
+  Searcher(Heuristic heuristic, TranspositionTable transpositionTable, SearchOptions options,
+      AtomicBoolean stop) {
+    this.heuristic = heuristic;
+    this.transpositionTable = transpositionTable;
+    this.options = options;
+    this.stop = stop;
+    this.board = new SearchBoard(new AbalonePosition(0L, 0L, true), AlphaBetaPruning.MAX_PLY);
+    for (int[] plyKillers : killers) {
+      Arrays.fill(plyKillers, AbaloneMove.NONE);
+    }
+  }
+
+  void setRoot(AbalonePosition root, Timer timer) {
+    if (!root.equals(this.root)) {
+      // The killers are kept for the next root moves of the same search.
+      for (int[] plyKillers : killers) {
+        Arrays.fill(plyKillers, AbaloneMove.NONE);
+      }
+      fadeHistory();
+    }
+    this.root = root;
+    this.timer = timer;
+    board.setPosition(root);
+  }
+
+  /**
+   * Makes this searcher try the moves in a slightly different order than the heuristic's, driven
+   * by {@code seed} (0 to follow the heuristic). Used by the helper threads of {@link
+   * LazySmpSearch} so that they do not all search the same subtrees at the same time.
+   */
+  void setOrderingSeed(long seed) {
+    random = seed;
+  }
+
+  /**
+   * Lets the table entries searched deeper than needed cut off a position, not only the ones of
+   * the same depth. The scores are then as deep as the table knows, so they depend on what was
+   * searched before: used by {@link LazySmpSearch}, whose helper threads fill the table ahead of
+   * the main thread.
+   */
+  void setDeeperCutoffs(boolean deeperCutoffs) {
+    this.deeperCutoffs = deeperCutoffs;
+  }
+
+  /**
+   * @return the moves of the root position, ordered by the heuristic.
+   */
+  int getRootMoves(int[] moves) {
+    board.setPosition(root);
+    return heuristic.getOrderedMoves(board, moves);
+  }
+
+  /**
+   * Scores the root {@code move} by searching the position after it {@code depth} plies deep.
+   */
+  int searchRootMove(int move, int depth, int alpha, int beta) throws TimeoutException {
+    board.setPosition(root);
+    board.makeMove(move);
+    return findMoveScore(depth, 1, alpha, beta);
+  }
+
+  /**
+   * Searches the root position itself {@code depth} plies deep, with a full window.
+   */
+  int searchRoot(int depth) throws TimeoutException {
+    board.setPosition(root);
+    return findMoveScore(depth, 0, Integer.MIN_VALUE, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @return the number of nodes visited since the last call, and resets the counter.
+   */
+  long takeNodeCount() {
+    long result = nodes;
+    nodes = 0;
+    return result;
+  }
+
+  /**
+   * If we get a timeout, then the score is invalid and the board should be reset before it is
+   * used again.
+   */
+  private int findMoveScore(int depth, int ply, int alpha, int beta) throws TimeoutException {
+    if (timer.didTimeout() || stop.get()) {
+      throw TimeoutException.INSTANCE;
+    }
+    nodes++;
+    if (board.isGameEnd() || ply >= AlphaBetaPruning.MAX_PLY) {
+      return heuristic.getStateValue(board);
+    }
+    if (depth == 0) {
+      return quiesce(options.getQuiescencePlies(), ply, alpha, beta);
+    }
+    long hash = board.getHash();
+    int bestMove = TranspositionTable.NO_MOVE;
+    long entry = transpositionTable.probe(hash);
+    if (entry != TranspositionTable.MISS) {
+      bestMove = TranspositionTable.getMove(entry);
+      // By default only entries of the same depth can cut, so a fixed-depth search gives the
+      // same scores whatever order (or thread) the nodes are visited in.
+      int entryDepth = TranspositionTable.getDepth(entry);
+      if (entryDepth == depth || (deeperCutoffs && entryDepth > depth)) {
+        int score = TranspositionTable.getScore(entry);
+        int bound = TranspositionTable.getBound(entry);
+        if (bound == TranspositionTable.EXACT
+            || (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+            || (bound == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+          return score;
+        }
+      }
+    }
+    boolean isWhite = board.isWhiteTurn();
+    int nullMoveReduction = options.getNullMoveReduction();
+    if (nullMoveReduction > 0 && depth > nullMoveReduction && !noNullMove[ply]
+        && (isWhite ? beta != Integer.MAX_VALUE : alpha != Integer.MIN_VALUE)) {
+      // Null-move pruning: if the position is still too good after passing, searched less deep,
+      // then any real move would be too. Verified by searching this position less deep too, in
+      // case all the moves are bad (which happens when pieces are stuck at the edge).
+      // The flags are cleared in finally blocks: a search stopped by a timeout must not leave
+      // null moves off at that ply for the next searches.
+      board.makeNullMove();
+      noNullMove[ply + 1] = true;
+      int score;
+      try {
+        score = isWhite
+            ? findMoveScore(depth - 1 - nullMoveReduction, ply + 1, beta - 1, beta)
+            : findMoveScore(depth - 1 - nullMoveReduction, ply + 1, alpha, alpha + 1);
+      } finally {
+        noNullMove[ply + 1] = false;
+      }
+      board.unmakeMove();
+      if (isWhite ? score >= beta : score <= alpha) {
+        noNullMove[ply] = true;
+        try {
+          score = isWhite
+              ? findMoveScore(depth - nullMoveReduction, ply, beta - 1, beta)
+              : findMoveScore(depth - nullMoveReduction, ply, alpha, alpha + 1);
+        } finally {
+          noNullMove[ply] = false;
+        }
+        if (isWhite ? score >= beta : score <= alpha) {
+          return score;
+        }
+      }
+    }
+    int[] possibleMoves = moveBuffer.get(ply);
+    int count = heuristic.getOrderedMoves(board, possibleMoves);
+    if (count == 0) {
+      return heuristic.getStateValue(board);
+    }
+    orderQuietMoves(possibleMoves, count, ply);
+    if (random != 0 && count > 2) {
+      // xorshift64, then swap the second move with a random later one.
+      random ^= random << 13;
+      random ^= random >>> 7;
+      random ^= random << 17;
+      int other = 1 + (int) ((random >>> 1) % (count - 1));
+      int move = possibleMoves[1];
+      possibleMoves[1] = possibleMoves[other];
+      possibleMoves[other] = move;
+    }
+    if (bestMove != TranspositionTable.NO_MOVE) {
+      // Try the best move of the previous search first.
+      for (int i = 1; i < count; i++) {
+        if (possibleMoves[i] == bestMove) {
+          possibleMoves[i] = possibleMoves[0];
+          possibleMoves[0] = bestMove;
+          break;
+        }
+      }
+    }
+
+    int originalAlpha = alpha;
+    int originalBeta = beta;
+    for (int i = 0; i < count; i++) {
+      int move = possibleMoves[i];
+      board.makeMove(move);
+      int childScore;
+      if (i == 0) {
+        childScore = findMoveScore(depth - 1, ply + 1, alpha, beta);
+      } else {
+        // Principal variation search: the first move is expected to be the best, so the others
+        // are only checked with a null window against it, and searched again with the whole
+        // window when they turn out better. The late quiet moves are first checked less deep, by
+        // the whole reduction or not at all: cutting it short could make it odd, and change the
+        // parity the heuristic is biased by (see SearchOptions.forDifficulty).
+        int reduction = 0;
+        if (i >= options.getLateMoveStart() && depth > options.getLateMoveReduction() + 1
+            && isQuiet(move)) {
+          reduction = options.getLateMoveReduction();
+        }
+        childScore = searchNullWindow(depth - 1 - reduction, ply + 1, isWhite, alpha, beta);
+        if (reduction > 0 && (isWhite ? childScore > alpha : childScore < beta)) {
+          childScore = searchNullWindow(depth - 1, ply + 1, isWhite, alpha, beta);
+        }
+        if (childScore > alpha && childScore < beta) {
+          childScore = findMoveScore(depth - 1, ply + 1, alpha, beta);
+        }
+      }
+      board.unmakeMove();
+      if (isWhite) {
+        if (childScore > alpha) {
+          alpha = childScore;
+          bestMove = move;
+        }
+        if (beta <= alpha) {
+          addCutoff(move, depth, ply);
+          break;
+        }
+      } else {
+        if (childScore < beta) {
+          beta = childScore;
+          bestMove = move;
+        }
+        if (beta <= alpha) {
+          addCutoff(move, depth, ply);
+          break;
+        }
+      }
+    }
+    int score = isWhite ? alpha : beta;
+    int bound = score <= originalAlpha ? TranspositionTable.UPPER_BOUND
+        : score >= originalBeta ? TranspositionTable.LOWER_BOUND : TranspositionTable.EXACT;
+    transpositionTable.store(hash, depth, bound, score, bestMove);
+    return score;
+  }
+
+  /**
+   * Searches the child position with the null window just above {@code alpha} for white, or just
+   * below {@code beta} for black, telling whether it would improve on it.
+   */
+  private int searchNullWindow(int depth, int ply, boolean isWhite, int alpha, int beta)
+      throws TimeoutException {
+    return isWhite
+        ? findMoveScore(depth, ply, alpha, alpha + 1)
+        : findMoveScore(depth, ply, beta - 1, beta);
+  }
+
+  /**
+   * Quiescence search: the player to move may either stop here (stand pat) and take the heuristic
+   * value, or play one of its pushes, until there is no push left or {@code depth} pushes have
+   * been played. Moving pieces without pushing is not searched, so the value only misses the
+   * quiet moves, not a pending push.<br>
+   * With {@link HeuristicImpl}, an ejecting push needs no search: it already scores the position
+   * as a win. Other heuristics get the win from playing the push.
+   */
+  private int quiesce(int depth, int ply, int alpha, int beta) throws TimeoutException {
+    int standPat = heuristic.getStateValue(board);
+    if (depth == 0 || board.isGameEnd() || ply >= AlphaBetaPruning.MAX_PLY
+        || standPat == Integer.MAX_VALUE || standPat == Integer.MIN_VALUE) {
+      return standPat;
+    }
+    boolean isWhite = board.isWhiteTurn();
+    if (isWhite) {
+      if (standPat >= beta) {
+        return standPat;
+      }
+      alpha = Math.max(alpha, standPat);
+    } else {
+      if (standPat <= alpha) {
+        return standPat;
+      }
+      beta = Math.min(beta, standPat);
+    }
+    int[] pushes = moveBuffer.get(ply);
+    int count = orderPushes(pushes,
+        MoveGenerator.generateInlineMoves(board.getMine(), board.getOpponent(), pushes, 0));
+    for (int i = 0; i < count; i++) {
+      if (timer.didTimeout() || stop.get()) {
+        throw TimeoutException.INSTANCE;
+      }
+      nodes++;
+      board.makeMove(pushes[i]);
+      int score = quiesce(depth - 1, ply + 1, alpha, beta);
+      board.unmakeMove();
+      if (isWhite) {
+        alpha = Math.max(alpha, score);
+      } else {
+        beta = Math.min(beta, score);
+      }
+      if (beta <= alpha) {
+        break;
+      }
+    }
+    return isWhite ? alpha : beta;
+  }
+
+  /**
+   * Keeps only the pushes of the first {@code count} {@code moves}, the ones pushing more (then
+   * with more pieces) first.
+   * @return the number of pushes.
+   */
+  private static int orderPushes(int[] moves, int count) {
+    int pushes = 0;
+    for (int i = 0; i < count; i++) {
+      int move = moves[i];
+      if (isQuiet(move)) {
+        continue;
+      }
+      int key = pushKey(move);
+      int j = pushes++;
+      while (j > 0 && pushKey(moves[j - 1]) < key) {
+        moves[j] = moves[j - 1];
+        j--;
+      }
+      moves[j] = move;
+    }
+    return pushes;
+  }
+
+  private static int pushKey(int move) {
+    return AbaloneMove.getOpponentCount(move) * 4 + AbaloneMove.getOwnCount(move);
+  }
+
+  private static boolean isQuiet(int move) {
+    return AbaloneMove.getOpponentCount(move) == 0;
+  }
+
+  private static int historyIndex(int move) {
+    // A broadside move and the inline move of the same first cell, direction and pieces have
+    // little in common, so they do not share their history.
+    int index = (AbaloneMove.getCell(move) * Direction.values().length
+        + AbaloneMove.getDirection(move)) * 4 + AbaloneMove.getOwnCount(move);
+    return index * 2 + (AbaloneMove.isBroadside(move) ? 1 : 0);
+  }
+
+  /**
+   * @return the killer moves of {@code ply}, the latest first, {@link AbaloneMove#NONE} if none.
+   */
+  int[] getKillers(int ply) {
+    return killers[ply].clone();
+  }
+
+  int getHistoryScore(int move) {
+    return history[historyIndex(move)];
+  }
+
+  /**
+   * Sorts the quiet moves after the others: killer moves first, then by history score. Moves with
+   * the same key keep the order of the heuristic.
+   */
+  void orderQuietMoves(int[] moves, int count, int ply) {
+    int first = 0;
+    while (first < count && !isQuiet(moves[first])) {
+      first++;
+    }
+    int[] plyKillers = killers[ply];
+    for (int i = first; i < count; i++) {
+      int move = moves[i];
+      int key;
+      if (!isQuiet(move)) {
+        // The heuristic put a push after a quiet move, keep it in front.
+        key = Integer.MAX_VALUE;
+      } else if (move == plyKillers[0]) {
+        key = Integer.MAX_VALUE - 1;
+      } else if (move == plyKillers[1]) {
+        key = Integer.MAX_VALUE - 2;
+      } else {
+        key = history[historyIndex(move)];
+      }
+      int j = i;
+      while (j > first && orderKeys[j - 1] < key) {
+        moves[j] = moves[j - 1];
+        orderKeys[j] = orderKeys[j - 1];
+        j--;
+      }
+      moves[j] = move;
+      orderKeys[j] = key;
+    }
+  }
+
+  void addCutoff(int move, int depth, int ply) {
+    if (!isQuiet(move)) {
+      return;
+    }
+    int[] plyKillers = killers[ply];
+    if (plyKillers[0] != move) {
+      plyKillers[1] = plyKillers[0];
+      plyKillers[0] = move;
+    }
+    int index = historyIndex(move);
+    history[index] += depth * depth;
+    if (history[index] > MAX_HISTORY) {
+      fadeHistory();
+    }
+  }
+
+  void fadeHistory() {
+    for (int i = 0; i < history.length; i++) {
+      history[i] >>= 1;
+    }
+  }
+}
@@ -0,0 +1,199 @@
+package org.abalone.ai;
+
+import java.util.List;
+
+import org.abalone.client.AbaloneMove;
+import org.abalone.client.AbalonePosition;
+import org.abalone.client.MoveGenerator;
+import org.game_api.GameApi.Operation;
+import org.game_api.GameApi.SetTurn;
+
+/**
+ * Decides how long the AI thinks about each move, within the time the container gives for the
+ * turn ({@link SetTurn#getNumberOfSecondsForTurn()}).<br>
+ * The time left over from a turn is lost, so the idea is not to save time for later moves but to
+ * answer quickly when more time would not change the move:
+ * <ul>
+ * <li>a quiet position, where no piece can push another, gets a smaller share of the turn than a
+ * position with many pushes, and a position with a single legal move gets none;</li>
+ * <li>the share shrinks while the best move stays the same over the iterations, and grows (up to
+ * a maximum) when it changes or its score drops from the previous iteration of the same parity;
+ * </li>
+ * <li>a won or lost position found by the search ends it;</li>
+ * <li>a new iteration is not started when, by the branching factor seen so far, it would not
+ * finish before the end of the turn.</li>
+ * </ul>
+ * The returned {@link MoveTimer} is given to
+ * {@link AlphaBetaPruning#findBestMove(org.abalone.client.AbaloneState, int, Timer)} with a large
+ * depth.
+ */
+public class TimeManager {
+  /** Kept from the turn for sending the move back to the container. */
+  static final int SAFETY_MARGIN_MILLISECONDS = 250;
+  /** The share of the turn for a quiet position, and for one with many pushes. */
+  static final double QUIET_SHARE = 0.25;
+  static final double CONTACT_SHARE = 0.5;
+  /** The number of pushes (for both players) from which the position counts as sharp. */
+  static final int MAX_CONTACT = 12;
+  /** The share of the turn that iterations may never start after. */
+  static final double MAX_SHARE = 0.8;
+  /** After that many iterations with the same best move, it is played in half the time. */
+  static final int STABLE_ITERATIONS = 3;
+  /**
+   * A drop of the best score by more than that gives the search more time: two pushes of a piece
+   * by two (see {@link AlphaBetaPruning#ASPIRATION_WINDOW}), while {@link HeuristicImpl} scores
+   * the usual positions in the hundreds of thousands.
+   */
+  static final int SCORE_DROP = 2 * AlphaBetaPruning.ASPIRATION_WINDOW;
+  /** Until two iterations have been timed. */
+  static final double DEFAULT_BRANCHING = 8;
+
+  private final int defaultSecondsForTurn;
+
+  /**
+   * @param defaultSecondsForTurn used when the container does not set a time limit, negative for
+   * no limit.
+   */
+  public TimeManager(int defaultSecondsForTurn) {
+    this.defaultSecondsForTurn = defaultSecondsForTurn;
+  }
+
+  /**
+   * @return the seconds given by the {@link SetTurn} in {@code operations}, or 0 when there is
+   * none or the container decides.
+   */
+  public static int getSecondsForTurn(List<Operation> operations) {
+    for (Operation operation : operations) {
+      if (operation instanceof SetTurn) {
+        return ((SetTurn) operation).getNumberOfSecondsForTurn();
+      }
+    }
+    return 0;
+  }
+
+  public MoveTimer startMove(AbalonePosition position, List<Operation> lastMove) {
+    return startMove(position, getSecondsForTurn(lastMove));
+  }
+
+  /**
+   * Starts the clock for a move.
+   * @param secondsForTurn the time limit of the turn, 0 if the container decides.
+   */
+  public MoveTimer startMove(AbalonePosition position, int secondsForTurn) {
+    int seconds = secondsForTurn > 0 ? secondsForTurn : defaultSecondsForTurn;
+    if (seconds <= 0) {
+      return new MoveTimer(-1, -1, -1);
+    }
+    long hard = Math.max(seconds * 1000L - SAFETY_MARGIN_MILLISECONDS, seconds * 500L);
+    int[] moves = MoveBuffer.forCurrentThread().get(0);
+    int count = MoveGenerator.generateMoves(position.getMine(), position.getOpponent(), moves);
+    if (count <= 1) {
+      return new MoveTimer(0, hard, hard);
+    }
+    int contact = Math.min(MAX_CONTACT, countPushes(position.getMine(), position.getOpponent())
+        + countPushes(position.getOpponent(), position.getMine()));
+    double share = QUIET_SHARE + (CONTACT_SHARE - QUIET_SHARE) * contact / MAX_CONTACT;
+    return new MoveTimer((long) (hard * share), (long) (hard * MAX_SHARE), hard);
+  }
+
+  private static int countPushes(long mine, long opponent) {
+    int[] moves = MoveBuffer.forCurrentThread().get(0);
+    int count = MoveGenerator.generateInlineMoves(mine, opponent, moves, 0);
+    int pushes = 0;
+    for (int i = 0; i < count; i++) {
+      if (AbaloneMove.getOpponentCount(moves[i]) > 0) {
+        pushes++;
+      }
+    }
+    return pushes;
+  }
+
+  /**
+   * The {@link Timer} of one move. Its hard deadline is the end of the turn (minus a margin), and
+   * its soft deadline moves with the results of the iterations.
+   */
+  public static class MoveTimer extends NanoTimer {
+    private final long maxTargetMilliseconds;
+    private final long hardMilliseconds;
+    private long targetMilliseconds;
+    private boolean decided;
+    private int bestMove = AbaloneMove.NONE;
+    private int bestScore;
+    // The best score of the iteration before the last one.
+    private int previousBestScore;
+    private int iterations;
+    private int stableIterations;
+    private long lastFinish;
+    private long lastNodes;
+    private long lastIterationNodes;
+    private long nextIterationMilliseconds;
+
+    MoveTimer(long targetMilliseconds, long maxTargetMilliseconds, long hardMilliseconds) {
+      super(maxTargetMilliseconds, hardMilliseconds, DEFAULT_CHECK_INTERVAL);
+      this.targetMilliseconds = targetMilliseconds;
+      this.maxTargetMilliseconds = maxTargetMilliseconds;
+      this.hardMilliseconds = hardMilliseconds;
+    }
+
+    /**
+     * @return the time after which no new iteration starts, negative for no limit.
+     */
+    public long getTargetMilliseconds() {
+      if (targetMilliseconds < 0) {
+        return targetMilliseconds;
+      }
+      return stableIterations >= STABLE_ITERATIONS ? targetMilliseconds / 2 : targetMilliseconds;
+    }
+
+    @Override
+    public boolean shouldStopDeepening() {
+      if (decided || super.shouldStopDeepening()) {
+        return true;
+      }
+      if (hardMilliseconds < 0) {
+        return false;
+      }
+      long elapsed = getElapsedMilliseconds();
+      return elapsed >= getTargetMilliseconds()
+          || elapsed + nextIterationMilliseconds > hardMilliseconds;
+    }
+
+    @Override
+    public void iterationFinished(int depth, int move, int score, long nodes) {
+      if (score == Integer.MAX_VALUE || score == Integer.MIN_VALUE) {
+        // Searching deeper will not change the result.
+        decided = true;
+      }
+      if (bestMove == move) {
+        stableIterations++;
+      } else {
+        if (bestMove != AbaloneMove.NONE) {
+          extendTarget();
+        }
+        stableIterations = 0;
+      }
+      // HeuristicImpl scores the pushes of the player to move, so the scores of odd and even
+      // depths are far apart: only the iterations of the same parity are compared.
+      if (iterations >= 2 && (long) score < (long) previousBestScore - SCORE_DROP) {
+        extendTarget();
+      }
+      bestMove = move;
+      previousBestScore = bestScore;
+      bestScore = score;
+      iterations++;
+
+      long elapsed = getElapsedMilliseconds();
+      long iterationNodes = nodes - lastNodes;
+      double branching = lastIterationNodes > 0 && iterationNodes > 0
+          ? (double) iterationNodes / lastIterationNodes : DEFAULT_BRANCHING;
+      nextIterationMilliseconds = (long) ((elapsed - lastFinish) * branching);
+      lastFinish = elapsed;
+      lastNodes = nodes;
+      lastIterationNodes = iterationNodes;
+    }
+
+    private void extendTarget() {
+      targetMilliseconds = Math.min(maxTargetMilliseconds, targetMilliseconds * 3 / 2);
+    }
+  }
+}
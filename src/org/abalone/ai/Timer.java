@@ -20,5 +20,24 @@ package org.abalone.ai;
  *
  */
 public interface Timer {
+  /**
+   * Hard deadline: the search aborts as soon as this returns true. It is called at every node, so
+   * it should be cheap.
+   */
   boolean didTimeout();
+
+  /**
+   * Soft deadline: once this returns true, iterative deepening does not start another iteration,
+   * but the current one may go on until {@link #didTimeout()}.
+   */
+  boolean shouldStopDeepening();
+
+  /**
+   * Called after each completed iterative deepening iteration.
+   * @param depth the number of plies searched.
+   * @param bestMove the best move found, as an {@link org.abalone.client.AbaloneMove}.
+   * @param bestScore its score, from the point of view of the player to move.
+   * @param nodes the number of nodes visited since the search started.
+   */
+  void iterationFinished(int depth, int bestMove, int bestScore, long nodes);
 }
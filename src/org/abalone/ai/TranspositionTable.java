@@ -0,0 +1,170 @@
+package org.abalone.ai;
+
+/**
+ * Fixed-size transposition table keyed by {@link org.abalone.client.AbalonePosition#getHash()}.
+ * <br>
+ * Each entry remembers the depth a position was searched to, whether the score is exact or only a
+ * lower / upper bound (alpha-beta cut it off), the score itself and the best move found. Entries
+ * are stored as two parallel {@code long} arrays (full key + packed data), so the table does not
+ * allocate after construction.<br>
+ * Which entry is overwritten on a collision is decided by the {@link ReplacementPolicy}.
+ */
+public class TranspositionTable {
+
+  public enum ReplacementPolicy {
+    /** Always keep the newest entry. */
+    ALWAYS,
+    /**
+     * Keep the deeper entry, unless the stored one is from an older search or for the same
+     * position.
+     */
+    DEPTH_PREFERRED,
+    /**
+     * Two entries per bucket: the first is depth-preferred, the second always takes whatever the
+     * first refused.
+     */
+    TWO_TIER
+  }
+
+  public static final int EXACT = 0;
+  public static final int LOWER_BOUND = 1;
+  public static final int UPPER_BOUND = 2;
+
+  /** Returned by {@link #probe(long)} when the position is not in the table. */
+  public static final long MISS = -1L;
+
+  public static final int NO_MOVE = 0xFFFFF;
+  static final int MAX_DEPTH = 0x7F;
+
+  /*
+   * Layout of the data word:
+   * bits 0-31 score, 32-51 best move, 52-58 depth, 59-60 bound, 61-63 age.
+   */
+  private static final int MOVE_SHIFT = 32;
+  private static final int DEPTH_SHIFT = 52;
+  private static final int BOUND_SHIFT = 59;
+  private static final int AGE_SHIFT = 61;
+
+  private final long[] keys;
+  private final long[] data;
+  private final int mask;
+  private final ReplacementPolicy policy;
+  private int age;
+
+  /**
+   * @param sizeLog2 the table holds {@code 2^sizeLog2} entries, 16 bytes each.
+   */
+  public TranspositionTable(int sizeLog2, ReplacementPolicy policy) {
+    if (sizeLog2 < 1 || sizeLog2 > 30) {
+      throw new IllegalArgumentException("sizeLog2 should be between 1 and 30");
+    }
+    this.keys = new long[1 << sizeLog2];
+    this.data = new long[1 << sizeLog2];
+    this.mask = (1 << sizeLog2) - 1;
+    this.policy = policy;
+    clear();
+  }
+
+  /**
+   * Called once per {@link AlphaBetaPruning#findBestMove}, entries from the previous searches
+   * become the first to be replaced.
+   */
+  public void newSearch() {
+    age = (age + 1) & 0x7;
+  }
+
+  public void clear() {
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = 0L;
+      data[i] = MISS;
+    }
+  }
+
+  /**
+   * @return the packed data for {@code hash}, or {@link #MISS}. Use the static getters to read it.
+   */
+  public long probe(long hash) {
+    int index = (int) hash & mask;
+    long entry = read(index, hash);
+    if (entry == MISS && policy == ReplacementPolicy.TWO_TIER) {
+      entry = read(index ^ 1, hash);
+    }
+    return entry;
+  }
+
+  private long read(int index, long hash) {
+    long entry = data[index];
+    if (entry != MISS && (keys[index] ^ entry) == hash) {
+      return entry;
+    }
+    return MISS;
+  }
+
+  public void store(long hash, int depth, int bound, int score, int move) {
+    long entry = pack(depth, bound, score, move);
+    int index = (int) hash & mask;
+    switch (policy) {
+      case ALWAYS:
+        write(index, hash, entry);
+        break;
+      case DEPTH_PREFERRED:
+        if (shouldReplace(index, hash, depth)) {
+          write(index, hash, entry);
+        }
+        break;
+      case TWO_TIER:
+        index &= ~1;
+        if (shouldReplace(index, hash, depth)) {
+          write(index, hash, entry);
+        } else {
+          write(index | 1, hash, entry);
+        }
+        break;
+      default:
+        throw new IllegalStateException("Unknown replacement policy " + policy);
+    }
+  }
+
+  private boolean shouldReplace(int index, long hash, int depth) {
+    long old = data[index];
+    return old == MISS || (keys[index] ^ old) == hash || getAge(old) != age
+        || depth >= getDepth(old);
+  }
+
+  private void write(int index, long hash, long entry) {
+    keys[index] = hash ^ entry;
+    data[index] = entry;
+  }
+
+  private long pack(int depth, int bound, int score, int move) {
+    return (score & 0xFFFFFFFFL)
+        | ((long) (move & NO_MOVE) << MOVE_SHIFT)
+        | ((long) Math.min(depth, MAX_DEPTH) << DEPTH_SHIFT)
+        | ((long) bound << BOUND_SHIFT)
+        | ((long) age << AGE_SHIFT);
+  }
+
+  public static int getScore(long entry) {
+    return (int) entry;
+  }
+
+  public static int getMove(long entry) {
+    return (int) (entry >>> MOVE_SHIFT) & NO_MOVE;
+  }
+
+  public static int getDepth(long entry) {
+    return (int) (entry >>> DEPTH_SHIFT) & MAX_DEPTH;
+  }
+
+  public static int getBound(long entry) {
+    return (int) (entry >>> BOUND_SHIFT) & 0x3;
+  }
+
+  static int getAge(long entry) {
+    return (int) (entry >>> AGE_SHIFT) & 0x7;
+  }
+
+  public int size() {
+    return keys.length;
+  }
+}
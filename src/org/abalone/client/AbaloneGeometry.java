@@ -0,0 +1,254 @@
+package org.abalone.client;
+
+import static org.abalone.client.AbaloneConstants.BoardColNum;
+import static org.abalone.client.AbaloneConstants.BoardRowNum;
+
+import org.abalone.client.AbalonePresenter.Direction;
+
+/**
+ * Static geometry of the 11 * 19 board, computed once from {@link AbaloneConstants#initialBoard}
+ * so that every lookup is an array access instead of a scan of
+ * {@link AbaloneConstants#illegalSquares} or {@link AbaloneConstants#scoreSquares}.
+ *
+ * Squares are addressed either by their (x, y) coordinates, or as
+ * {@code x * BoardColNum + y}. The 61 playable squares are also numbered row by row as cells,
+ * which is what {@link AbalonePosition} and {@link AbaloneMove} use.
+ */
+public final class AbaloneGeometry {
+
+	/*
+	 * Number of playable squares on the board.
+	 */
+	public static final int CELL_NUM = 61;
+
+	public static final int NO_CELL = -1;
+
+	/*
+	 * Row / column offsets for each {@link Direction}, indexed by {@link Direction#ordinal()}.
+	 */
+	private static final int[] DIRECTION_X = new int[Direction.values().length];
+	private static final int[] DIRECTION_Y = new int[Direction.values().length];
+	private static final int[] OPPOSITE = new int[Direction.values().length];
+
+	private static final boolean[] ILLEGAL_SQUARES = new boolean[BoardRowNum * BoardColNum];
+	private static final boolean[] SCORE_SQUARES = new boolean[BoardRowNum * BoardColNum];
+	private static final int[] SCORE_SQUARE_LIST;
+	private static final int[] CELL_X = new int[CELL_NUM];
+	private static final int[] CELL_Y = new int[CELL_NUM];
+	private static final int[] SQUARE_TO_CELL = new int[BoardRowNum * BoardColNum];
+	private static final int[][] NEIGHBORS = new int[Direction.values().length][CELL_NUM];
+	private static final int[][] EJECT_SQUARES = new int[Direction.values().length][CELL_NUM];
+	private static final long[] NEIGHBOR_MASKS = new long[CELL_NUM];
+	private static final int[] CENTER_DISTANCES = new int[CELL_NUM];
+	private static final int[] EDGE_EXITS = new int[CELL_NUM];
+
+	static {
+		setDirection(Direction.UPPER_LEFT_DIAGONAL, -1, -1);
+		setDirection(Direction.UPPER_RIGHT_DIAGONAL, -1, 1);
+		setDirection(Direction.LOWER_LEFT_DIAGONAL, 1, -1);
+		setDirection(Direction.LOWER_RIGHT_DIAGONAL, 1, 1);
+		setDirection(Direction.LEFT_HORIZONTAL, 0, -2);
+		setDirection(Direction.RIGHT_HORIZONTAL, 0, 2);
+		setOpposite(Direction.UPPER_LEFT_DIAGONAL, Direction.LOWER_RIGHT_DIAGONAL);
+		setOpposite(Direction.UPPER_RIGHT_DIAGONAL, Direction.LOWER_LEFT_DIAGONAL);
+		setOpposite(Direction.LEFT_HORIZONTAL, Direction.RIGHT_HORIZONTAL);
+
+		int cell = 0;
+		int scoreSquares = 0;
+		for (int x = 0; x < BoardRowNum; x++) {
+			for (int y = 0; y < BoardColNum; y++) {
+				int square = x * BoardColNum + y;
+				String kind = AbaloneConstants.initialBoard.get(x).get(y);
+				ILLEGAL_SQUARES[square] = kind.equals(AbaloneConstants.I);
+				SCORE_SQUARES[square] = kind.equals(AbaloneConstants.S);
+				if (ILLEGAL_SQUARES[square] || SCORE_SQUARES[square]) {
+					SQUARE_TO_CELL[square] = NO_CELL;
+					if (SCORE_SQUARES[square]) {
+						scoreSquares++;
+					}
+				} else {
+					SQUARE_TO_CELL[square] = cell;
+					CELL_X[cell] = x;
+					CELL_Y[cell] = y;
+					cell++;
+				}
+			}
+		}
+		SCORE_SQUARE_LIST = new int[scoreSquares];
+		scoreSquares = 0;
+		for (int square = 0; square < SCORE_SQUARES.length; square++) {
+			if (SCORE_SQUARES[square]) {
+				SCORE_SQUARE_LIST[scoreSquares++] = square;
+			}
+		}
+
+		for (int d = 0; d < DIRECTION_X.length; d++) {
+			for (int c = 0; c < CELL_NUM; c++) {
+				int x = CELL_X[c] + DIRECTION_X[d];
+				int y = CELL_Y[c] + DIRECTION_Y[d];
+				NEIGHBORS[d][c] = cellIndex(x, y);
+				if (NEIGHBORS[d][c] == NO_CELL) {
+					// A piece pushed out of the board lands on the adjacent score square, for the
+					// horizontal directions that is the square right next to it.
+					int ejectY = DIRECTION_X[d] == 0 ? CELL_Y[c] + DIRECTION_Y[d] / 2 : y;
+					EJECT_SQUARES[d][c] = x * BoardColNum + ejectY;
+				} else {
+					EJECT_SQUARES[d][c] = NO_CELL;
+				}
+			}
+		}
+
+		// The cells are numbered row by row on a symmetric board, so the middle one is the center.
+		int center = CELL_NUM / 2;
+		for (int c = 0; c < CELL_NUM; c++) {
+			for (int d = 0; d < DIRECTION_X.length; d++) {
+				if (NEIGHBORS[d][c] == NO_CELL) {
+					EDGE_EXITS[c]++;
+				} else {
+					NEIGHBOR_MASKS[c] |= 1L << NEIGHBORS[d][c];
+				}
+			}
+			// A diagonal step changes the row by one and the column by one, a horizontal step the
+			// column by two.
+			int dx = Math.abs(CELL_X[c] - CELL_X[center]);
+			int dy = Math.abs(CELL_Y[c] - CELL_Y[center]);
+			CENTER_DISTANCES[c] = dx + Math.max(0, (dy - dx) / 2);
+		}
+	}
+
+	private AbaloneGeometry() { }
+
+	private static void setDirection(Direction direction, int dx, int dy) {
+		DIRECTION_X[direction.ordinal()] = dx;
+		DIRECTION_Y[direction.ordinal()] = dy;
+	}
+
+	private static void setOpposite(Direction a, Direction b) {
+		OPPOSITE[a.ordinal()] = b.ordinal();
+		OPPOSITE[b.ordinal()] = a.ordinal();
+	}
+
+	private static boolean isOnBoard(int x, int y) {
+		return x >= 0 && y >= 0 && x < BoardRowNum && y < BoardColNum;
+	}
+
+	/**
+	 * Same as {@code illegalSquares.contains([x, y])}: false outside of the board.
+	 */
+	public static boolean isIllegalSquare(int x, int y) {
+		return isOnBoard(x, y) && ILLEGAL_SQUARES[x * BoardColNum + y];
+	}
+
+	/**
+	 * Same as {@code scoreSquares.contains([x, y])}: false outside of the board.
+	 */
+	public static boolean isScoreSquare(int x, int y) {
+		return isOnBoard(x, y) && SCORE_SQUARES[x * BoardColNum + y];
+	}
+
+	/**
+	 * @return whether a piece can stand on (x, y) during the game.
+	 */
+	public static boolean isPlayable(int x, int y) {
+		return cellIndex(x, y) != NO_CELL;
+	}
+
+	public static int getScoreSquareCount() {
+		return SCORE_SQUARE_LIST.length;
+	}
+
+	/**
+	 * @return the {@code index}th score square, as {@code x * BoardColNum + y}.
+	 */
+	public static int getScoreSquare(int index) {
+		return SCORE_SQUARE_LIST[index];
+	}
+
+	/**
+	 * @return the playable cell for the given board coordinates, or {@link #NO_CELL} when the
+	 * square is an illegal square, a score square, or outside of the board.
+	 */
+	public static int cellIndex(int x, int y) {
+		if (!isOnBoard(x, y)) {
+			return NO_CELL;
+		}
+		return SQUARE_TO_CELL[x * BoardColNum + y];
+	}
+
+	public static int cellX(int cell) {
+		return CELL_X[cell];
+	}
+
+	public static int cellY(int cell) {
+		return CELL_Y[cell];
+	}
+
+	/**
+	 * @return the cell next to {@code cell} in {@code direction}, or {@link #NO_CELL} when that
+	 * would leave the board.
+	 */
+	public static int neighbor(int cell, int direction) {
+		return NEIGHBORS[direction][cell];
+	}
+
+	/**
+	 * @return the score square (x * {@link AbaloneConstants#BoardColNum} + y) a piece on
+	 * {@code cell} lands on when it is pushed out of the board in {@code direction}, or
+	 * {@link #NO_CELL} if the neighbor in that direction is playable.
+	 */
+	public static int ejectSquare(int cell, int direction) {
+		return EJECT_SQUARES[direction][cell];
+	}
+
+	/**
+	 * @return the direction of the step from the playable square (startX, startY) to
+	 * (endX, endY), which is either its neighbor or the score square it is pushed onto, or -1 if
+	 * the squares are not one step apart.
+	 */
+	public static int stepDirection(int startX, int startY, int endX, int endY) {
+		int start = cellIndex(startX, startY);
+		if (start == NO_CELL) {
+			return -1;
+		}
+		int end = cellIndex(endX, endY);
+		if (end == NO_CELL && !isScoreSquare(endX, endY)) {
+			return -1;
+		}
+		for (int direction = 0; direction < DIRECTION_X.length; direction++) {
+			if (end != NO_CELL ? NEIGHBORS[direction][start] == end
+					: EJECT_SQUARES[direction][start] == endX * BoardColNum + endY) {
+				return direction;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the cells next to {@code cell}, as a bitboard.
+	 */
+	public static long neighborMask(int cell) {
+		return NEIGHBOR_MASKS[cell];
+	}
+
+	/**
+	 * @return the number of steps from {@code cell} to the center of the board, 0 to 4.
+	 */
+	public static int centerDistance(int cell) {
+		return CENTER_DISTANCES[cell];
+	}
+
+	/**
+	 * @return the number of directions a piece on {@code cell} can be pushed out of the board in:
+	 * 0 inside, 2 on a side, 3 in a corner.
+	 */
+	public static int edgeExits(int cell) {
+		return EDGE_EXITS[cell];
+	}
+
+	/**
+	 * @return the direction going back along {@code direction}.
+	 */
+	public static int opposite(int direction) {
+		return OPPOSITE[direction];
+	}
+}
@@ -2,8 +2,6 @@ package org.abalone.client;
 
 import static org.abalone.client.AbaloneConstants.BTurn;
 import static org.abalone.client.AbaloneConstants.WTurn;
-import static org.abalone.client.AbaloneConstants.illegalSquares;
-import static org.abalone.client.AbaloneConstants.scoreSquares;
 import static org.abalone.client.AbaloneConstants.initialBoard;
 import static org.abalone.client.AbaloneConstants.BOARD;
 import static org.abalone.client.AbaloneConstants.JUMP;
@@ -23,6 +21,10 @@ import com.google.common.collect.Lists;
 
 public class AbaloneLogic {
 
+	// Reused by checkLegalMove, so an instance should not be shared between threads (there is
+	// no ThreadLocal in GWT).
+	private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+
 	public VerifyMoveDone verify(VerifyMove verifyMove) {
     try {
       checkMoveIsLegal(verifyMove);
@@ -86,6 +88,61 @@ public class AbaloneLogic {
 		
 		// 3, Focus on the {@code jumps}
 		checkJump(jumps);
+		
+		// 4. The jumps should be a legal move, that leads to the current state.
+		checkLegalMove(abaloneStateLast, abaloneStateNow, jumps);
+	}
+	
+	/**
+	 * Checks that {@code jumps} are exactly the jumps of one of the moves {@link MoveGenerator}
+	 * generates for the player to move in {@code lastState}, so every rule is checked (groups of
+	 * at most 3 pieces in a line, pushes only by more pieces, no piece over another...). The
+	 * candidates are narrowed down by direction and numbers of pieces before their jumps are
+	 * compared. The order of the jumps is free, but {@code state} must be the board the move
+	 * leads to.
+	 */
+	void checkLegalMove(AbaloneState lastState, AbaloneState state,
+			List<ArrayList<Integer>> jumps) {
+		check(jumps != null && !jumps.isEmpty(), "A move should move at least one piece");
+		AbalonePosition position = AbalonePosition.fromState(lastState);
+		check(!position.isGameEnd(), "No move can be made after the end of the game");
+		List<Integer> firstJump = jumps.get(0);
+		int direction = AbaloneGeometry.stepDirection(firstJump.get(0), firstJump.get(1),
+				firstJump.get(2), firstJump.get(3));
+		check(direction >= 0, "Each jump should move a piece by one step");
+		int color = position.isWhiteTurn() ? 0 : 1;
+		int ownCount = 0;
+		for (List<Integer> jump : jumps) {
+			if (jump.get(4) == color) {
+				ownCount++;
+			}
+		}
+		int opponentCount = jumps.size() - ownCount;
+		
+		int count = MoveGenerator.generateMoves(position.getMine(), position.getOpponent(), moves);
+		for (int i = 0; i < count; i++) {
+			int move = moves[i];
+			if (AbaloneMove.getDirection(move) != direction
+					|| AbaloneMove.getOwnCount(move) != ownCount
+					|| AbaloneMove.getOpponentCount(move) != opponentCount) {
+				continue;
+			}
+			// The jumps of a move are all different, so with the same size, containing each
+			// other means being the same set.
+			ArrayList<ArrayList<Integer>> moveJumps =
+					AbaloneMove.toJumps(move, position.isWhiteTurn());
+			if (moveJumps.size() == jumps.size() && moveJumps.containsAll(jumps)
+					&& jumps.containsAll(moveJumps)) {
+				AbalonePosition expected = position.applyJumps(moveJumps);
+				AbalonePosition actual = AbalonePosition.fromState(state);
+				check(expected.getWhite() == actual.getWhite()
+						&& expected.getBlack() == actual.getBlack()
+						&& expected.getEjectedSquare() == actual.getEjectedSquare(),
+						"The jumps should be applied in the order of the move");
+				return;
+			}
+		}
+		check(false, "The jumps should be a legal move");
 	}
 	
 	public void checkJump(List<ArrayList<Integer>> jumps) {
@@ -97,11 +154,11 @@ public class AbaloneLogic {
 						"Each jump item should be the format '{startX, startY, endX, endY, 0/1}'");
 				check(jump.get(4) == 0 || jump.get(4) == 1, 
 						"Each jump item's last digit should be 0/1 for piece color");
-				check(!illegalSquares.contains(Lists.<Integer>newArrayList(jump.get(0), jump.get(1))), 
+				check(!AbaloneGeometry.isIllegalSquare(jump.get(0), jump.get(1)), 
 						"start coordinates should not locate inside illegal squares");
-				check(!illegalSquares.contains(Lists.<Integer>newArrayList(jump.get(2), jump.get(3))), 
+				check(!AbaloneGeometry.isIllegalSquare(jump.get(2), jump.get(3)), 
 						"end coordinates should not locate inside illegal squares");
-				check(!scoreSquares.contains(Lists.<Integer>newArrayList(jump.get(0), jump.get(1))), 
+				check(!AbaloneGeometry.isScoreSquare(jump.get(0), jump.get(1)), 
 						"start coordinates should not locate inside score squares");
 			}
 		}
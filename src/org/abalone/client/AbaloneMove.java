@@ -0,0 +1,133 @@
+package org.abalone.client;
+
+import java.util.ArrayList;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Static helpers for moves encoded into a single {@code int}, used by the AI so that searching
+ * does not need to build the {@code ArrayList<ArrayList<Integer>>} jumps of every move.
+ *
+ * An inline move is described by the cell of its last (pushing) piece, the {@link
+ * AbalonePresenter.Direction} it moves to, how many of the mover's pieces move and how many
+ * opponent pieces are pushed:
+ * <pre>
+ * bits 0-5   cell of the last piece
+ * bits 6-8   direction ordinal
+ * bits 9-10  number of own pieces (1-3)
+ * bits 11-12 number of pushed opponent pieces (0-2)
+ * bit  13    the front opponent piece is pushed out of the board
+ * </pre>
+ * A broadside move, where two or three pieces standing in a line all move sideways to empty
+ * squares, is described by the cell of the first piece, the direction the pieces move to, the
+ * direction from the first piece to the others and the number of pieces:
+ * <pre>
+ * bits 0-5   cell of the first piece
+ * bits 6-8   direction ordinal
+ * bits 9-10  number of own pieces (2-3)
+ * bit  14    broadside flag
+ * bits 15-17 direction ordinal of the line
+ * </pre>
+ */
+public final class AbaloneMove {
+
+	public static final int NONE = -1;
+
+	private static final int DIRECTION_SHIFT = 6;
+	private static final int OWN_SHIFT = 9;
+	private static final int OPPONENT_SHIFT = 11;
+	private static final int EJECT_BIT = 1 << 13;
+	private static final int BROADSIDE_BIT = 1 << 14;
+	private static final int LINE_SHIFT = 15;
+
+	private AbaloneMove() { }
+
+	public static int inline(int cell, int direction, int ownCount, int opponentCount,
+			boolean ejects) {
+		return cell | (direction << DIRECTION_SHIFT) | (ownCount << OWN_SHIFT) |
+				(opponentCount << OPPONENT_SHIFT) | (ejects ? EJECT_BIT : 0);
+	}
+
+	public static int broadside(int cell, int direction, int lineDirection, int ownCount) {
+		return cell | (direction << DIRECTION_SHIFT) | (ownCount << OWN_SHIFT) | BROADSIDE_BIT |
+				(lineDirection << LINE_SHIFT);
+	}
+
+	public static int getCell(int move) {
+		return move & 0x3F;
+	}
+
+	public static int getDirection(int move) {
+		return (move >>> DIRECTION_SHIFT) & 0x7;
+	}
+
+	public static int getOwnCount(int move) {
+		return (move >>> OWN_SHIFT) & 0x3;
+	}
+
+	public static int getOpponentCount(int move) {
+		return (move >>> OPPONENT_SHIFT) & 0x3;
+	}
+
+	public static boolean isEjecting(int move) {
+		return (move & EJECT_BIT) != 0;
+	}
+
+	public static boolean isBroadside(int move) {
+		return (move & BROADSIDE_BIT) != 0;
+	}
+
+	/**
+	 * @return for a broadside move, the direction from its first piece to the other ones.
+	 */
+	public static int getLineDirection(int move) {
+		return (move >>> LINE_SHIFT) & 0x7;
+	}
+
+	/**
+	 * Converts the {@code move} into jumps sorted from the front piece to the last one, which is
+	 * the order {@link AbaloneState#applyJumpOnBoard(java.util.List)} expects. The jumps of a
+	 * broadside move go to empty squares, so their order does not matter.
+	 * @param whiteMoves whether the move is made by the white player.
+	 */
+	public static ArrayList<ArrayList<Integer>> toJumps(int move, boolean whiteMoves) {
+		if (isBroadside(move)) {
+			ArrayList<ArrayList<Integer>> jumps = Lists.newArrayList();
+			int from = getCell(move);
+			for (int i = 0; i < getOwnCount(move); i++) {
+				int to = AbaloneGeometry.neighbor(from, getDirection(move));
+				jumps.add(Lists.newArrayList(AbaloneGeometry.cellX(from), AbaloneGeometry.cellY(from),
+						AbaloneGeometry.cellX(to), AbaloneGeometry.cellY(to), whiteMoves ? 0 : 1));
+				from = AbaloneGeometry.neighbor(from, getLineDirection(move));
+			}
+			return jumps;
+		}
+		int direction = getDirection(move);
+		int ownCount = getOwnCount(move);
+		int length = ownCount + getOpponentCount(move);
+		int[] line = new int[length];
+		line[0] = getCell(move);
+		for (int i = 1; i < length; i++) {
+			line[i] = AbaloneGeometry.neighbor(line[i - 1], direction);
+		}
+		ArrayList<ArrayList<Integer>> jumps = Lists.newArrayList();
+		for (int i = length - 1; i >= 0; i--) {
+			int from = line[i];
+			int to = AbaloneGeometry.neighbor(from, direction);
+			int toX;
+			int toY;
+			if (to == AbaloneGeometry.NO_CELL) {
+				int square = AbaloneGeometry.ejectSquare(from, direction);
+				toX = square / AbaloneConstants.BoardColNum;
+				toY = square % AbaloneConstants.BoardColNum;
+			} else {
+				toX = AbaloneGeometry.cellX(to);
+				toY = AbaloneGeometry.cellY(to);
+			}
+			boolean isWhite = i < ownCount ? whiteMoves : !whiteMoves;
+			jumps.add(Lists.newArrayList(AbaloneGeometry.cellX(from), AbaloneGeometry.cellY(from),
+					toX, toY, isWhite ? 0 : 1));
+		}
+		return jumps;
+	}
+}
@@ -0,0 +1,305 @@
+package org.abalone.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+
+/**
+ * Compact representation of an Abalone position, used by the AI instead of the 11 * 19
+ * {@code List<ArrayList<String>>} board of {@link AbaloneState}.
+ *
+ * The 61 playable squares are numbered row by row (see
+ * {@link AbaloneGeometry#cellIndex(int, int)}), so each side fits into one 64-bit mask, bit
+ * {@code c} being set when that side has a piece on cell {@code c}. A piece pushed onto a score
+ * square ends the game; that square and the color of the piece are kept separately so the
+ * conversion back to {@link AbaloneState} is lossless.
+ *
+ * Each position also carries a Zobrist hash of its pieces and turn, which
+ * {@link #applyJumps(List)} updates incrementally with the cells that changed.
+ *
+ * Instances are immutable, {@link #applyJumps(List)} returns a new position.
+ */
+public class AbalonePosition {
+
+	/*
+	 * Zobrist keys: one random number per (cell, color), and one for black to move.
+	 */
+	private static final long[] ZOBRIST_WHITE = new long[AbaloneGeometry.CELL_NUM];
+	private static final long[] ZOBRIST_BLACK = new long[AbaloneGeometry.CELL_NUM];
+	private static final long ZOBRIST_BLACK_TURN;
+
+	static {
+		// Fixed seed, so hashes are the same on every server and can be persisted.
+		long seed = 0x41BA1013E5EEDL;
+		for (int c = 0; c < AbaloneGeometry.CELL_NUM; c++) {
+			seed += 0x9E3779B97F4A7C15L;
+			ZOBRIST_WHITE[c] = mix(seed);
+			seed += 0x9E3779B97F4A7C15L;
+			ZOBRIST_BLACK[c] = mix(seed);
+		}
+		seed += 0x9E3779B97F4A7C15L;
+		ZOBRIST_BLACK_TURN = mix(seed);
+	}
+
+	/**
+	 * SplitMix64 finalizer, only used to fill the Zobrist tables.
+	 */
+	static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	private final long white;
+	private final long black;
+	private final boolean whiteTurn;
+	// Square (x * BoardColNum + y) of the piece pushed onto a score square, or NO_CELL.
+	private final int ejectedSquare;
+	private final boolean ejectedWhite;
+	private final long hash;
+
+	public AbalonePosition(long white, long black, boolean whiteTurn) {
+		this(white, black, whiteTurn, AbaloneGeometry.NO_CELL, false);
+	}
+
+	public AbalonePosition(long white, long black, boolean whiteTurn, int ejectedSquare,
+			boolean ejectedWhite) {
+		this(white, black, whiteTurn, ejectedSquare, ejectedWhite,
+				computeHash(white, black, whiteTurn));
+		if ((white & black) != 0) {
+			throw new IllegalArgumentException("A cell can not hold both a white and a black piece");
+		}
+	}
+
+	private AbalonePosition(long white, long black, boolean whiteTurn, int ejectedSquare,
+			boolean ejectedWhite, long hash) {
+		this.white = white;
+		this.black = black;
+		this.whiteTurn = whiteTurn;
+		this.ejectedSquare = ejectedSquare;
+		this.ejectedWhite = ejectedWhite;
+		this.hash = hash;
+	}
+
+	/**
+	 * Converts the board and turn of the given {@code state} into a position.
+	 */
+	public static AbalonePosition fromState(AbaloneState state) {
+		List<ArrayList<String>> board = state.getBoard();
+		long white = 0L;
+		long black = 0L;
+		int ejectedSquare = AbaloneGeometry.NO_CELL;
+		boolean ejectedWhite = false;
+		for (int x = 0; x < AbaloneConstants.BoardRowNum; x++) {
+			List<String> row = board.get(x);
+			for (int y = 0; y < AbaloneConstants.BoardColNum; y++) {
+				String square = row.get(y);
+				boolean isWhite = square.equals(AbaloneConstants.W);
+				if (!isWhite && !square.equals(AbaloneConstants.B)) {
+					continue;
+				}
+				int cell = AbaloneGeometry.cellIndex(x, y);
+				if (cell == AbaloneGeometry.NO_CELL) {
+					ejectedSquare = x * AbaloneConstants.BoardColNum + y;
+					ejectedWhite = isWhite;
+				} else if (isWhite) {
+					white |= 1L << cell;
+				} else {
+					black |= 1L << cell;
+				}
+			}
+		}
+		return new AbalonePosition(white, black, state.getTurn().equals(AbaloneConstants.WTurn),
+				ejectedSquare, ejectedWhite);
+	}
+
+	/**
+	 * Converts this position back to an {@link AbaloneState} with the given {@code playerIds} and
+	 * last {@code jump}.
+	 */
+	public AbaloneState toState(List<String> playerIds, List<ArrayList<Integer>> jump) {
+		return new AbaloneState(whiteTurn ? AbaloneConstants.WTurn : AbaloneConstants.BTurn,
+				playerIds, toBoard(), jump, Optional.of(isGameEnd()));
+	}
+
+	/**
+	 * @return a new board in the {@link AbaloneState#getBoard()} format.
+	 */
+	public List<ArrayList<String>> toBoard() {
+		List<ArrayList<String>> board = Lists.newArrayList();
+		for (int x = 0; x < AbaloneConstants.BoardRowNum; x++) {
+			ArrayList<String> row = Lists.newArrayList();
+			for (int y = 0; y < AbaloneConstants.BoardColNum; y++) {
+				int cell = AbaloneGeometry.cellIndex(x, y);
+				if (cell == AbaloneGeometry.NO_CELL) {
+					if (x * AbaloneConstants.BoardColNum + y == ejectedSquare) {
+						row.add(ejectedWhite ? AbaloneConstants.W : AbaloneConstants.B);
+					} else {
+						row.add(AbaloneConstants.initialBoard.get(x).get(y));
+					}
+				} else {
+					row.add(getSquare(cell));
+				}
+			}
+			board.add(row);
+		}
+		return board;
+	}
+
+	/**
+	 * Same as {@link AbaloneState#applyJumpOnBoard(List)}, except that the turn is passed to the
+	 * opponent afterwards.
+	 * @param jumps sorted jumps {startX, startY, endX, endY, 0/1 (0 for white, 1 for black)}.
+	 * @return a new position.
+	 */
+	public AbalonePosition applyJumps(List<ArrayList<Integer>> jumps) {
+		long newWhite = white;
+		long newBlack = black;
+		long newHash = hash ^ ZOBRIST_BLACK_TURN;
+		int newEjectedSquare = ejectedSquare;
+		boolean newEjectedWhite = ejectedWhite;
+		for (List<Integer> jump : jumps) {
+			int start = AbaloneGeometry.cellIndex(jump.get(0), jump.get(1));
+			int end = AbaloneGeometry.cellIndex(jump.get(2), jump.get(3));
+			boolean isWhite = jump.get(4) == 0;
+			if (start == AbaloneGeometry.NO_CELL) {
+				throw new RuntimeException("Jump should not start outside of the playable squares");
+			}
+			long startBit = 1L << start;
+			if ((newWhite & startBit) != 0) {
+				newHash ^= ZOBRIST_WHITE[start];
+			} else if ((newBlack & startBit) != 0) {
+				newHash ^= ZOBRIST_BLACK[start];
+			}
+			newWhite &= ~startBit;
+			newBlack &= ~startBit;
+			if (end == AbaloneGeometry.NO_CELL) {
+				newEjectedSquare = jump.get(2) * AbaloneConstants.BoardColNum + jump.get(3);
+				newEjectedWhite = isWhite;
+			} else if (isWhite) {
+				newWhite |= 1L << end;
+				newHash ^= ZOBRIST_WHITE[end];
+			} else {
+				newBlack |= 1L << end;
+				newHash ^= ZOBRIST_BLACK[end];
+			}
+		}
+		return new AbalonePosition(newWhite, newBlack, !whiteTurn, newEjectedSquare,
+				newEjectedWhite, newHash);
+	}
+
+	/**
+	 * @return {@link AbaloneConstants#W}, {@link AbaloneConstants#B} or {@link AbaloneConstants#E}
+	 * for the given playable {@code cell}.
+	 */
+	public String getSquare(int cell) {
+		long bit = 1L << cell;
+		return (white & bit) != 0 ? AbaloneConstants.W :
+			(black & bit) != 0 ? AbaloneConstants.B : AbaloneConstants.E;
+	}
+
+	public long getWhite() {
+		return white;
+	}
+
+	public long getBlack() {
+		return black;
+	}
+
+	/**
+	 * @return the pieces of the player to move.
+	 */
+	public long getMine() {
+		return whiteTurn ? white : black;
+	}
+
+	/**
+	 * @return the pieces of the player not to move.
+	 */
+	public long getOpponent() {
+		return whiteTurn ? black : white;
+	}
+
+	public boolean isWhiteTurn() {
+		return whiteTurn;
+	}
+
+	/**
+	 * @return the Zobrist hash of the pieces on the playable cells and of the turn. A piece pushed
+	 * out of the board is not part of the hash.
+	 */
+	public long getHash() {
+		return hash;
+	}
+
+	public boolean isGameEnd() {
+		return ejectedSquare != AbaloneGeometry.NO_CELL;
+	}
+
+	/**
+	 * @return the square (x * {@link AbaloneConstants#BoardColNum} + y) of the piece pushed out of
+	 * the board, or {@link AbaloneGeometry#NO_CELL}.
+	 */
+	public int getEjectedSquare() {
+		return ejectedSquare;
+	}
+
+	public boolean isEjectedWhite() {
+		return ejectedWhite;
+	}
+
+	/**
+	 * @return the Zobrist key of a {@code white} or black piece on {@code cell}.
+	 */
+	public static long zobristKey(int cell, boolean white) {
+		return white ? ZOBRIST_WHITE[cell] : ZOBRIST_BLACK[cell];
+	}
+
+	/**
+	 * @return the Zobrist key toggled when the turn changes.
+	 */
+	public static long zobristTurnKey() {
+		return ZOBRIST_BLACK_TURN;
+	}
+
+	public static long computeHash(long white, long black, boolean whiteTurn) {
+		long hash = whiteTurn ? 0L : ZOBRIST_BLACK_TURN;
+		while (white != 0) {
+			hash ^= ZOBRIST_WHITE[Long.numberOfTrailingZeros(white)];
+			white &= white - 1;
+		}
+		while (black != 0) {
+			hash ^= ZOBRIST_BLACK[Long.numberOfTrailingZeros(black)];
+			black &= black - 1;
+		}
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (other == this) {
+			return true;
+		}
+		if (!(other instanceof AbalonePosition)) {
+			return false;
+		}
+		AbalonePosition otherPosition = (AbalonePosition) other;
+		return white == otherPosition.white && black == otherPosition.black &&
+				whiteTurn == otherPosition.whiteTurn &&
+				ejectedSquare == otherPosition.ejectedSquare &&
+				ejectedWhite == otherPosition.ejectedWhite;
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (hash ^ (hash >>> 32)) ^ ejectedSquare;
+	}
+
+	@Override
+	public String toString() {
+		return AbaloneState.listListToString(toBoard()) + (whiteTurn ? "turn: WP" : "turn: BP");
+	}
+}
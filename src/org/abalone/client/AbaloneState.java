@@ -11,7 +11,6 @@ import java.util.Map;
 import java.util.Objects;
 
 import com.google.common.base.Optional;
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 
 /**
@@ -19,7 +18,12 @@ import com.google.common.collect.Lists;
  * which should be mapped to field variables in this class: turn, board, jump.
  * In addition, adding one field isGameEnd to record whether a winner has be selected.
  * 
- * All field variables are immutable, so this class is thread safe.
+ * All field variables are immutable, so this class is thread safe. The rows of the board are
+ * shared between a state and the states derived from it, so they must never be modified.
+ * 
+ * A 64-bit hash of the pieces and the turn is computed once, when the state is constructed (and
+ * updated from the jumps in {@link #applyJumpOnBoard(List)}), so {@link #equals(Object)} rejects
+ * most different states without comparing the boards, and states can be used as map keys.
  * @author Long Yang (ly603@nyu.edu)
  *
  */
@@ -31,14 +35,54 @@ public class AbaloneState {
 	private final List<ArrayList<String>> board;
 	private final List<ArrayList<Integer>> jump;
 	private final Optional<Boolean> isGameEnd;
+	private final long hash;
 	
 	public AbaloneState(String turn, List<String> playerIds, List<ArrayList<String>> board, 
 			List<ArrayList<Integer>> jump, Optional<Boolean> isGameEnd) {
+		this(turn, playerIds, board, jump, isGameEnd, computeHash(checkNotNull(turn),
+				checkNotNull(board)));
+	}
+	
+	private AbaloneState(String turn, List<String> playerIds, List<ArrayList<String>> board, 
+			List<ArrayList<Integer>> jump, Optional<Boolean> isGameEnd, long hash) {
 		this.turn = checkNotNull(turn);
 		this.playerIds = checkNotNull(playerIds);
 		this.board = checkNotNull(board);
 		this.jump = checkNotNull(jump);
 		this.isGameEnd = isGameEnd;
+		this.hash = hash;
+	}
+	
+	/**
+	 * The pieces on the playable cells and the turn are hashed like {@link AbalonePosition}, so
+	 * for a game that has not ended both hashes are the same. A piece on any other square (a score
+	 * square) has its own key.
+	 */
+	private static long computeHash(String turn, List<ArrayList<String>> board) {
+		long hash = turn.equals(WTurn) ? 0L : AbalonePosition.zobristTurnKey();
+		for (int x = 0; x < board.size(); x++) {
+			List<String> row = board.get(x);
+			for (int y = 0; y < row.size(); y++) {
+				hash ^= squareKey(x, y, row.get(y));
+			}
+		}
+		return hash;
+	}
+	
+	/**
+	 * @return the key of a piece {@code square} at (x, y), 0 for a square without a piece.
+	 */
+	private static long squareKey(int x, int y, String square) {
+		boolean isWhite = square.equals(AbaloneConstants.W);
+		if (!isWhite && !square.equals(AbaloneConstants.B)) {
+			return 0L;
+		}
+		int cell = AbaloneGeometry.cellIndex(x, y);
+		if (cell != AbaloneGeometry.NO_CELL) {
+			return AbalonePosition.zobristKey(cell, isWhite);
+		}
+		return AbalonePosition.mix(~(((long) x * AbaloneConstants.BoardColNum + y) * 2
+				+ (isWhite ? 0 : 1)));
 	}
 	
 	public AbaloneState makeMove(ArrayList<Integer> move) {
@@ -60,28 +104,25 @@ public class AbaloneState {
 	 * 	{startX, startY, endX, endY, 0/1 (0 for white, 1 for black)}, 
 	 * 	{startX, startY, endX, endY, 0/1 (0 for white, 1 for black)}
 	 * }
-	 * @return a new result {@link AbaloneState}
+	 * @return a new result {@link AbaloneState}, whose board shares the rows the jumps do not
+	 * change with the board of this state.
 	 */
-	@SuppressWarnings("unchecked")
 	public AbaloneState applyJumpOnBoard(List<ArrayList<Integer>> jumps) {
 		if(jumps == null || jumps.isEmpty()){
 			return this;
 		}
 		
-		System.out.println("State Jumps");
-		for(int i = 0; i < jumps.size(); i++){
-			for(int j = 0; j < jumps.get(i).size(); j++) {
-				System.out.print(jumps.get(i).get(j) + " ");
-			}
-			System.out.println();
+		JumpTrace.Sink traceSink = JumpTrace.getSink();
+		if(traceSink != null) {
+			traceSink.jumpsApplied(turn, jumps);
 		}
 		
-		List<ArrayList<String>> newBoard = new ArrayList<ArrayList<String>>();
-		
-		for(int i = 0; i < board.size(); i++) {
-			newBoard.add((ArrayList<String>)board.get(i).clone());
-		}
+		// Copy on write: the new board shares the rows of this one, and a row is only cloned
+		// before the first jump that changes it.
+		List<ArrayList<String>> newBoard = new ArrayList<ArrayList<String>>(board);
+		int copiedRows = 0;
 		
+		long newHash = hash;
 		for(List<Integer> jump : jumps) {
 			int startX = jump.get(0);
 			int startY = jump.get(1);
@@ -89,20 +130,34 @@ public class AbaloneState {
 			int endY = jump.get(3);
 			int pieceColor = jump.get(4);
 			
-			if( AbaloneConstants.illegalSquares.contains(ImmutableList.<Integer>of(startX, startY)) || 
-					AbaloneConstants.illegalSquares.contains(ImmutableList.<Integer>of(endX, endY)) ) {
+			if( AbaloneGeometry.isIllegalSquare(startX, startY) || 
+					AbaloneGeometry.isIllegalSquare(endX, endY) ) {
 				throw new RuntimeException("Jump should not start or end in illegal scores");
 			}
 			
-			if(pieceColor == 0) {
-				newBoard.get(endX).set(endY, AbaloneConstants.W);
-				newBoard.get(startX).set(startY, AbaloneConstants.E);
-			} else {
-				newBoard.get(endX).set(endY, AbaloneConstants.B);
-				newBoard.get(startX).set(startY, AbaloneConstants.E);
-			}
+			copiedRows = copyRow(newBoard, copiedRows, endX);
+			copiedRows = copyRow(newBoard, copiedRows, startX);
+			String piece = pieceColor == 0 ? AbaloneConstants.W : AbaloneConstants.B;
+			newHash ^= squareKey(endX, endY, newBoard.get(endX).get(endY))
+					^ squareKey(endX, endY, piece);
+			newBoard.get(endX).set(endY, piece);
+			newHash ^= squareKey(startX, startY, newBoard.get(startX).get(startY));
+			newBoard.get(startX).set(startY, AbaloneConstants.E);
 		}
-		return new AbaloneState(turn, playerIds, newBoard, jumps, isGameEnd);
+		return new AbaloneState(turn, playerIds, newBoard, jumps, isGameEnd, newHash);
+	}
+	
+	/**
+	 * Replaces row {@code x} of {@code newBoard} by a copy, unless its bit is set in
+	 * {@code copiedRows}.
+	 * @return {@code copiedRows} with the bit of row {@code x} set.
+	 */
+	@SuppressWarnings("unchecked")
+	private static int copyRow(List<ArrayList<String>> newBoard, int copiedRows, int x) {
+		if((copiedRows & (1 << x)) == 0) {
+			newBoard.set(x, (ArrayList<String>)newBoard.get(x).clone());
+		}
+		return copiedRows | (1 << x);
 	}
 	
 	/**
@@ -138,9 +193,9 @@ public class AbaloneState {
 		@SuppressWarnings("unchecked")
 		List<ArrayList<Integer>> jump = (List<ArrayList<Integer>>)gameApiState.get(JUMP);
 		// check whether reach the end of game.
-		for (List<Integer> points : AbaloneConstants.scoreSquares) {
-			int x = points.get(0);		
-			int y = points.get(1);
+		for (int i = 0; i < AbaloneGeometry.getScoreSquareCount(); i++) {
+			int x = AbaloneGeometry.getScoreSquare(i) / AbaloneConstants.BoardColNum;
+			int y = AbaloneGeometry.getScoreSquare(i) % AbaloneConstants.BoardColNum;
 			if (board.get(x).get(y).equals(AbaloneConstants.B) ||
 					board.get(x).get(y).equals(AbaloneConstants.W)) {
 				return new AbaloneState(turn, playerIds, board, jump, Optional.of(true));
@@ -166,6 +221,9 @@ public class AbaloneState {
 			return false;
 		}
 		AbaloneState otherState = (AbaloneState) other;
+		if(hash != otherState.hash) {
+			return false;
+		}
 		
 		return 
 				Objects.equals(turn, otherState.getTurn()) &&
@@ -175,6 +233,11 @@ public class AbaloneState {
 				Objects.equals(jump, otherState.getJump());
 	}
 	
+	@Override
+	public int hashCode() {
+		return (int) (hash ^ (hash >>> 32));
+	}
+	
 	@Override
 	public String toString() {
 		StringBuilder strBuilder = new StringBuilder();
@@ -242,4 +305,12 @@ public class AbaloneState {
 	public List<ArrayList<Integer>> getJump(){
 		return jump;
 	}
+	
+	/**
+	 * @return the hash of the pieces and the turn. It is the {@link AbalonePosition#getHash()} of
+	 * the state as long as no piece has been pushed out of the board.
+	 */
+	public long getHash() {
+		return hash;
+	}
 }
@@ -0,0 +1,127 @@
+package org.abalone.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Trace of the jumps applied by {@link AbaloneState#applyJumpOnBoard(List)}, replacing the old
+ * printing to {@code System.out}.
+ *
+ * Tracing is off by default: no {@link Sink} is installed and {@link #getSink()} returns null, so
+ * the only cost left in {@code applyJumpOnBoard} is one null check. {@link #enable(int)} installs
+ * a {@link RingBuffer} which keeps the last jump lists and can be dumped at any time; any other
+ * {@link Sink} can be plugged in with {@link #setSink(Sink)}.
+ */
+public final class JumpTrace {
+
+	public interface Sink {
+		/**
+		 * Called with the {@code jumps} applied on a board with the given {@code turn}. The list must
+		 * not be kept, it belongs to the caller.
+		 */
+		void jumpsApplied(String turn, List<ArrayList<Integer>> jumps);
+	}
+
+	// Set from a debugging thread while the game thread applies jumps.
+	private static volatile Sink sink;
+
+	private JumpTrace() { }
+
+	public static Sink getSink() {
+		return sink;
+	}
+
+	/**
+	 * @param newSink the sink to record into, null to disable tracing.
+	 */
+	public static void setSink(Sink newSink) {
+		sink = newSink;
+	}
+
+	/**
+	 * Starts recording the last {@code capacity} jump lists.
+	 * @return the buffer, to be dumped later.
+	 */
+	public static RingBuffer enable(int capacity) {
+		RingBuffer ringBuffer = new RingBuffer(capacity);
+		sink = ringBuffer;
+		return ringBuffer;
+	}
+
+	public static void disable() {
+		sink = null;
+	}
+
+	/**
+	 * {@link Sink} keeping the last {@code capacity} jump lists in a preallocated {@code int} array.
+	 * Only the first {@link #MAX_JUMPS} jumps of a list are kept, which covers every legal move.
+	 */
+	public static class RingBuffer implements Sink {
+		public static final int MAX_JUMPS = 5;
+		private static final int JUMP_SIZE = 5;
+		// {white turn (0/1), jump count, MAX_JUMPS * {startX, startY, endX, endY, color}}
+		private static final int RECORD_SIZE = 2 + MAX_JUMPS * JUMP_SIZE;
+
+		private final int capacity;
+		private final int[] records;
+		private long recorded;
+
+		public RingBuffer(int capacity) {
+			if (capacity <= 0) {
+				throw new IllegalArgumentException("capacity should be positive");
+			}
+			this.capacity = capacity;
+			this.records = new int[capacity * RECORD_SIZE];
+		}
+
+		@Override
+		public synchronized void jumpsApplied(String turn, List<ArrayList<Integer>> jumps) {
+			int offset = (int) (recorded % capacity) * RECORD_SIZE;
+			int jumpCount = Math.min(jumps.size(), MAX_JUMPS);
+			records[offset] = AbaloneConstants.WTurn.equals(turn) ? 1 : 0;
+			records[offset + 1] = jumpCount;
+			for (int i = 0; i < jumpCount; i++) {
+				List<Integer> jump = jumps.get(i);
+				for (int j = 0; j < JUMP_SIZE && j < jump.size(); j++) {
+					records[offset + 2 + i * JUMP_SIZE + j] = jump.get(j);
+				}
+			}
+			recorded++;
+		}
+
+		/**
+		 * @return how many jump lists have been recorded since the buffer was created, including
+		 * the ones that have been overwritten.
+		 */
+		public synchronized long getRecordedCount() {
+			return recorded;
+		}
+
+		public synchronized void clear() {
+			recorded = 0;
+		}
+
+		/**
+		 * @return the recorded jump lists, oldest first, one per line:
+		 * {@code #sequence turn: startX,startY->endX,endY(color) ...}
+		 */
+		public synchronized String dump() {
+			StringBuilder strBuilder = new StringBuilder();
+			long first = Math.max(0, recorded - capacity);
+			for (long sequence = first; sequence < recorded; sequence++) {
+				int offset = (int) (sequence % capacity) * RECORD_SIZE;
+				strBuilder.append("#").append(sequence).append(" ")
+						.append(records[offset] == 1 ? AbaloneConstants.WTurn : AbaloneConstants.BTurn)
+						.append(":");
+				for (int i = 0; i < records[offset + 1]; i++) {
+					int jump = offset + 2 + i * JUMP_SIZE;
+					strBuilder.append(" ").append(records[jump]).append(",").append(records[jump + 1])
+							.append("->").append(records[jump + 2]).append(",").append(records[jump + 3])
+							.append("(").append(records[jump + 4]).append(")");
+				}
+				strBuilder.append("\n");
+			}
+			return strBuilder.toString();
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package org.abalone.client;
+
+import org.abalone.client.AbalonePresenter.Direction;
+
+/**
+ * Generates all the legal {@link AbaloneMove}s of a position given as {@link AbalonePosition}
+ * bitboards, using only the precomputed {@link AbaloneGeometry} neighbor tables (no board, no
+ * presenter):
+ * <ul>
+ * <li>inline moves of 1 to 3 pieces, including the pushes (sumito) of 1 or 2 opponent pieces by
+ * more pieces, which may push one out of the board;</li>
+ * <li>broadside moves of 2 or 3 pieces in a line, all moving sideways to empty squares.</li>
+ * </ul>
+ */
+public final class MoveGenerator {
+
+	/** More than the legal moves of any position (at most 84 inline and 336 broadside moves). */
+	public static final int MAX_MOVES = 512;
+
+	private static final int DIRECTIONS = Direction.values().length;
+
+	/*
+	 * Each line of pieces is looked at from one end only, towards one of these directions, so
+	 * every broadside move is generated once.
+	 */
+	private static final int[] LINE_DIRECTIONS = {
+		Direction.LOWER_LEFT_DIAGONAL.ordinal(),
+		Direction.LOWER_RIGHT_DIAGONAL.ordinal(),
+		Direction.RIGHT_HORIZONTAL.ordinal(),
+	};
+
+	private MoveGenerator() { }
+
+	/**
+	 * Writes all the moves of the player owning {@code mine} into {@code moves}: first the inline
+	 * moves, piece by piece, then the broadside moves.
+	 * @return the number of moves written.
+	 * @throws IllegalStateException if {@code moves} is too short, rather than growing it.
+	 */
+	public static int generateMoves(long mine, long opponent, int[] moves) {
+		int count = generateInlineMoves(mine, opponent, moves, 0);
+		return generateBroadsideMoves(mine, opponent, moves, count);
+	}
+
+	/**
+	 * Writes the inline moves into {@code moves} from index {@code count}.
+	 * @return the new number of moves in {@code moves}.
+	 */
+	public static int generateInlineMoves(long mine, long opponent, int[] moves, int count) {
+		for (long pieces = mine; pieces != 0; pieces &= pieces - 1) {
+			int cell = Long.numberOfTrailingZeros(pieces);
+			for (int direction = 0; direction < DIRECTIONS; direction++) {
+				int move = getInlineMove(mine, opponent, cell, direction);
+				if (move != AbaloneMove.NONE) {
+					count = add(moves, count, move);
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Writes the broadside moves into {@code moves} from index {@code count}.
+	 * @return the new number of moves in {@code moves}.
+	 */
+	public static int generateBroadsideMoves(long mine, long opponent, int[] moves, int count) {
+		long empty = ~(mine | opponent);
+		for (long pieces = mine; pieces != 0; pieces &= pieces - 1) {
+			int cell = Long.numberOfTrailingZeros(pieces);
+			for (int line : LINE_DIRECTIONS) {
+				int second = AbaloneGeometry.neighbor(cell, line);
+				if (second == AbaloneGeometry.NO_CELL || (mine & (1L << second)) == 0) {
+					continue;
+				}
+				int third = AbaloneGeometry.neighbor(second, line);
+				boolean hasThird =
+						third != AbaloneGeometry.NO_CELL && (mine & (1L << third)) != 0;
+				for (int direction = 0; direction < DIRECTIONS; direction++) {
+					if (direction == line || direction == AbaloneGeometry.opposite(line)) {
+						continue;
+					}
+					if (!isEmpty(empty, cell, direction) || !isEmpty(empty, second, direction)) {
+						continue;
+					}
+					count = add(moves, count, AbaloneMove.broadside(cell, direction, line, 2));
+					if (hasThird && isEmpty(empty, third, direction)) {
+						count = add(moves, count, AbaloneMove.broadside(cell, direction, line, 3));
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return the inline {@link AbaloneMove} in which the piece on {@code cell} pushes the pieces in
+	 * front of it towards {@code direction}, or {@link AbaloneMove#NONE} if it is not legal.
+	 */
+	public static int getInlineMove(long mine, long opponent, int cell, int direction) {
+		int myCount = 0;
+		int opponentCount = 0;
+		int i = cell;
+		while (i != AbaloneGeometry.NO_CELL && (mine & (1L << i)) != 0) {
+			myCount++;
+			i = AbaloneGeometry.neighbor(i, direction);
+		}
+		while (i != AbaloneGeometry.NO_CELL && (opponent & (1L << i)) != 0) {
+			opponentCount++;
+			i = AbaloneGeometry.neighbor(i, direction);
+		}
+		if (myCount > 3 || opponentCount >= myCount) {
+			return AbaloneMove.NONE;
+		}
+		boolean isWinning = i == AbaloneGeometry.NO_CELL;
+		if (isWinning && opponentCount == 0) {
+			// would push our own piece out of the board.
+			return AbaloneMove.NONE;
+		}
+		if (!isWinning && (mine & (1L << i)) != 0) {
+			// our own piece is blocking the push.
+			return AbaloneMove.NONE;
+		}
+		return AbaloneMove.inline(cell, direction, myCount, opponentCount, isWinning);
+	}
+
+	private static boolean isEmpty(long empty, int cell, int direction) {
+		int target = AbaloneGeometry.neighbor(cell, direction);
+		return target != AbaloneGeometry.NO_CELL && (empty & (1L << target)) != 0;
+	}
+
+	private static int add(int[] moves, int count, int move) {
+		if (count == moves.length) {
+			throw new IllegalStateException("More than " + moves.length + " moves");
+		}
+		moves[count] = move;
+		return count + 1;
+	}
+}
@@ -0,0 +1,124 @@
+package org.abalone.ai;
+
+import static org.abalone.client.AbaloneConstants.BoardColNum;
+import static org.abalone.client.AbaloneConstants.WTurn;
+import static org.abalone.client.AbaloneConstants.initialBoard;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.abalone.client.AbaloneGeometry;
+import org.abalone.client.AbalonePosition;
+import org.abalone.client.AbalonePresenter.Direction;
+import org.abalone.client.AbaloneState;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class AbaloneStateCodecTest {
+
+	private final List<String> playerIds = Lists.newArrayList("0", "1");
+	private final AbaloneState start = new AbaloneState(WTurn, playerIds, initialBoard,
+			Lists.<ArrayList<Integer>>newArrayList(), null);
+	private final Heuristic heuristic = new HeuristicImpl();
+
+	@Test
+	public void testInitialState() {
+		checkRoundTrip(start);
+	}
+
+	@Test
+	public void testStatesAfterMoves() {
+		AbalonePosition position = AbalonePosition.fromState(start);
+		for (ArrayList<ArrayList<Integer>> jumps : heuristic.getOrderedMoves(position)) {
+			checkRoundTrip(position.applyJumps(jumps).toState(playerIds, jumps));
+		}
+	}
+
+	@Test
+	public void testEjection() {
+		// Two white pieces push a black one off the top left corner, up to the left.
+		int direction = Direction.UPPER_LEFT_DIAGONAL.ordinal();
+		int corner = 0;
+		int middle = AbaloneGeometry.neighbor(corner, AbaloneGeometry.opposite(direction));
+		int back = AbaloneGeometry.neighbor(middle, AbaloneGeometry.opposite(direction));
+		int ejectedSquare = AbaloneGeometry.ejectSquare(corner, direction);
+		AbalonePosition end = new AbalonePosition(1L << corner | 1L << middle, 1L << 30, false,
+				ejectedSquare, false);
+		assertTrue(end.isGameEnd());
+		ArrayList<ArrayList<Integer>> jumps = new ArrayList<ArrayList<Integer>>();
+		jumps.add(Lists.newArrayList(AbaloneGeometry.cellX(corner), AbaloneGeometry.cellY(corner),
+				ejectedSquare / BoardColNum, ejectedSquare % BoardColNum, 1));
+		jumps.add(Lists.newArrayList(AbaloneGeometry.cellX(middle), AbaloneGeometry.cellY(middle),
+				AbaloneGeometry.cellX(corner), AbaloneGeometry.cellY(corner), 0));
+		jumps.add(Lists.newArrayList(AbaloneGeometry.cellX(back), AbaloneGeometry.cellY(back),
+				AbaloneGeometry.cellX(middle), AbaloneGeometry.cellY(middle), 0));
+		checkRoundTrip(end.toState(playerIds, jumps));
+	}
+
+	@Test
+	public void testSeveralStatesInOneBuffer() {
+		AbalonePosition position = AbalonePosition.fromState(start);
+		ArrayList<ArrayList<Integer>> jumps = heuristic.getOrderedMoves(position).get(0);
+		AbaloneState next = position.applyJumps(jumps).toState(playerIds, jumps);
+		ByteBuffer buffer = ByteBuffer.allocate(2 * AbaloneStateCodec.MAX_ENCODED_BYTES);
+		AbaloneStateCodec.encode(start, buffer);
+		AbaloneStateCodec.encode(next, buffer);
+		assertEquals(AbaloneStateCodec.getEncodedSize(start)
+				+ AbaloneStateCodec.getEncodedSize(next), buffer.position());
+		buffer.flip();
+		assertEquals(start, AbaloneStateCodec.decode(buffer, playerIds));
+		assertEquals(next, AbaloneStateCodec.decode(buffer, playerIds));
+		assertEquals(0, buffer.remaining());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownVersion() {
+		ByteBuffer buffer = ByteBuffer.allocate(AbaloneStateCodec.MAX_ENCODED_BYTES);
+		AbaloneStateCodec.encode(start, buffer);
+		buffer.put(0, (byte) (AbaloneStateCodec.VERSION + 1));
+		buffer.flip();
+		AbaloneStateCodec.decode(buffer, playerIds);
+	}
+
+	@Test
+	public void testJumpThatIsNotAStep() {
+		// A legal first jump, then one of two squares.
+		ArrayList<ArrayList<Integer>> jumps = new ArrayList<ArrayList<Integer>>();
+		jumps.add(heuristic.getOrderedMoves(AbalonePosition.fromState(start)).get(0).get(0));
+		jumps.add(Lists.newArrayList(8, 6, 6, 6, 0));
+		AbaloneState state = new AbaloneState(WTurn, playerIds, initialBoard, jumps, null);
+		ByteBuffer buffer = ByteBuffer.allocate(AbaloneStateCodec.MAX_ENCODED_BYTES);
+		try {
+			AbaloneStateCodec.encode(state, buffer);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// Nothing was written.
+			assertEquals(0, buffer.position());
+		}
+	}
+
+	@Test
+	public void testBufferTooSmall() {
+		ByteBuffer buffer = ByteBuffer.allocate(AbaloneStateCodec.getEncodedSize(start) - 1);
+		try {
+			AbaloneStateCodec.encode(start, buffer);
+			fail();
+		} catch (BufferOverflowException e) {
+			assertEquals(0, buffer.position());
+		}
+	}
+
+	private void checkRoundTrip(AbaloneState state) {
+		ByteBuffer buffer = ByteBuffer.allocate(AbaloneStateCodec.MAX_ENCODED_BYTES);
+		AbaloneStateCodec.encode(state, buffer);
+		assertEquals(AbaloneStateCodec.getEncodedSize(state), buffer.position());
+		buffer.flip();
+		assertEquals(state, AbaloneStateCodec.decode(buffer, playerIds));
+	}
+}
@@ -0,0 +1,244 @@
+package org.abalone.ai;
+
+import static org.abalone.client.AbaloneConstants.WTurn;
+import static org.abalone.client.AbaloneConstants.initialBoard;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.abalone.ai.SearchOptions.Difficulty;
+import org.abalone.ai.TranspositionTable.ReplacementPolicy;
+import org.abalone.client.AbaloneMove;
+import org.abalone.client.AbalonePosition;
+import org.abalone.client.AbaloneState;
+import org.abalone.client.MoveGenerator;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class AlphaBetaPruningTest {
+
+	private static final int DEPTH = 3;
+	private static final int PLIES = 6;
+	/** Deep enough for the null move, tried 4 plies or more from the leaves. */
+	private static final int HARD_DEPTH = 5;
+
+	private final Heuristic heuristic = new HeuristicImpl();
+
+	@Test
+	public void testParallelFindsSameMove() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			AlphaBetaPruning sequential = new AlphaBetaPruning(heuristic, newTable());
+			AlphaBetaPruning parallel = new AlphaBetaPruning(heuristic, newTable(), pool);
+			AbaloneState state = new AbaloneState(WTurn, Lists.newArrayList("0", "1"), initialBoard,
+					Lists.<ArrayList<Integer>>newArrayList(), null);
+			AbalonePosition position = AbalonePosition.fromState(state);
+			for (int ply = 0; ply < PLIES && !position.isGameEnd(); ply++) {
+				ArrayList<ArrayList<Integer>> move =
+						sequential.findBestMove(state, DEPTH, new DateTimer(-1));
+				assertEquals(move, parallel.findBestMove(state, DEPTH, new DateTimer(-1)));
+				position = position.applyJumps(move);
+				state = position.toState(Lists.newArrayList("0", "1"),
+						Lists.<ArrayList<Integer>>newArrayList());
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testBestMoveHasMinimaxValue() {
+		checkMinimaxValue(0);
+	}
+
+	@Test
+	public void testBestMoveHasMinimaxValueWithQuiescence() {
+		checkMinimaxValue(2);
+	}
+
+	private void checkMinimaxValue(int quiescencePlies) {
+		AlphaBetaPruning alphaBeta = new AlphaBetaPruning(heuristic, newTable(), null,
+				new SearchOptions(quiescencePlies));
+		AbaloneState state = new AbaloneState(WTurn, Lists.newArrayList("0", "1"), initialBoard,
+				Lists.<ArrayList<Integer>>newArrayList(), null);
+		AbalonePosition position = AbalonePosition.fromState(state);
+		for (int ply = 0; ply < 3 && !position.isGameEnd(); ply++) {
+			ArrayList<ArrayList<Integer>> move =
+					alphaBeta.findBestMove(state, DEPTH, new DateTimer(-1));
+			assertEquals(minimax(position, DEPTH, quiescencePlies),
+					minimax(position.applyJumps(move), DEPTH - 1, quiescencePlies));
+			position = position.applyJumps(move);
+			state = position.toState(Lists.newArrayList("0", "1"),
+					Lists.<ArrayList<Integer>>newArrayList());
+		}
+	}
+
+	@Test
+	public void testPrincipalVariationScoresMatchAlphaBeta() {
+		Searcher searcher = new Searcher(heuristic, newTable(), new SearchOptions(0),
+				new AtomicBoolean());
+		AbalonePosition position = AbalonePosition.fromState(new AbaloneState(WTurn,
+				Lists.newArrayList("0", "1"), initialBoard, Lists.<ArrayList<Integer>>newArrayList(),
+				null));
+		int[] moves = new int[MoveBuffer.MAX_MOVES];
+		for (int ply = 0; ply < PLIES && !position.isGameEnd(); ply++) {
+			searcher.setRoot(position, new DateTimer(-1));
+			for (int depth = 1; depth <= DEPTH; depth++) {
+				// A full window, where a null-window search that fails must be searched again.
+				assertEquals(alphaBeta(position, depth, Integer.MIN_VALUE, Integer.MAX_VALUE),
+						searcher.searchRoot(depth));
+			}
+			searcher.getRootMoves(moves);
+			position = position.applyJumps(AbaloneMove.toJumps(moves[0], position.isWhiteTurn()));
+		}
+	}
+
+	@Test
+	public void testHardFindsTheForcedEjection() {
+		// White pushes, and every black move leaves a black piece to push off.
+		AbalonePosition position =
+				new AbalonePosition(1216183009921777889L, 5665097859138824L, true);
+		checkHardFindsSameMove(position, HARD_DEPTH);
+		checkHardFindsSameMove(position, HARD_DEPTH + 1);
+	}
+
+	@Test
+	public void testHardFindsTheZugzwang() {
+		// Black has a single piece, on the edge. After the best white move, black loses it whatever
+		// it plays, while passing would lose nothing: the null move must not hide that.
+		AbalonePosition position = new AbalonePosition(4311843328L, 1024L, true);
+		checkHardFindsSameMove(position, HARD_DEPTH + 1);
+		ArrayList<ArrayList<Integer>> move = checkHardFindsSameMove(position, HARD_DEPTH);
+		AbalonePosition after = position.applyJumps(move);
+		assertFalse(canEject(new AbalonePosition(after.getWhite(), after.getBlack(), true)));
+		int[] moves = new int[MoveBuffer.MAX_MOVES];
+		int count = MoveGenerator.generateMoves(after.getMine(), after.getOpponent(), moves);
+		for (int i = 0; i < count; i++) {
+			assertTrue(canEject(after.applyJumps(AbaloneMove.toJumps(moves[i], false))));
+		}
+	}
+
+	@Test
+	public void testHardFindsTheOpeningMoves() {
+		// At an even depth the null-move search of an odd reduction ends with the other side to
+		// move than the full search, and HeuristicImpl's bias changes its moves.
+		AbalonePosition position = AbalonePosition.fromState(new AbaloneState(WTurn,
+				Lists.newArrayList("0", "1"), initialBoard, Lists.<ArrayList<Integer>>newArrayList(),
+				null));
+		for (int ply = 0; ply < 3; ply++) {
+			position = position.applyJumps(checkHardFindsSameMove(position, HARD_DEPTH + 1));
+		}
+	}
+
+	@Test
+	public void testHardVisitsFewerNodes() {
+		AlphaBetaPruning unpruned = new AlphaBetaPruning(heuristic, newTable());
+		AlphaBetaPruning hard = new AlphaBetaPruning(heuristic, newTable(), null,
+				SearchOptions.forDifficulty(Difficulty.HARD));
+		AbalonePosition position = AbalonePosition.fromState(new AbaloneState(WTurn,
+				Lists.newArrayList("0", "1"), initialBoard, Lists.<ArrayList<Integer>>newArrayList(),
+				null));
+		long unprunedNodes = 0;
+		long hardNodes = 0;
+		for (int ply = 0; ply < 4; ply++) {
+			AbaloneState state = position.toState(Lists.newArrayList("0", "1"),
+					Lists.<ArrayList<Integer>>newArrayList());
+			ArrayList<ArrayList<Integer>> move =
+					unpruned.findBestMove(state, HARD_DEPTH, new DateTimer(-1));
+			hard.findBestMove(state, HARD_DEPTH, new DateTimer(-1));
+			unprunedNodes += unpruned.getNodeCount();
+			hardNodes += hard.getNodeCount();
+			position = position.applyJumps(move);
+		}
+		assertTrue(hardNodes + " nodes for HARD, " + unprunedNodes + " for DEFAULT",
+				hardNodes < unprunedNodes);
+	}
+
+	/**
+	 * Checks that {@link Difficulty#HARD} plays the move of the search without pruning at
+	 * {@code depth}, and returns it.
+	 */
+	private ArrayList<ArrayList<Integer>> checkHardFindsSameMove(AbalonePosition position,
+			int depth) {
+		AbaloneState state = position.toState(Lists.newArrayList("0", "1"),
+				Lists.<ArrayList<Integer>>newArrayList());
+		ArrayList<ArrayList<Integer>> move = new AlphaBetaPruning(heuristic, newTable())
+				.findBestMove(state, depth, new DateTimer(-1));
+		AlphaBetaPruning hard = new AlphaBetaPruning(heuristic, newTable(), null,
+				SearchOptions.forDifficulty(Difficulty.HARD));
+		assertEquals(move, hard.findBestMove(state, depth, new DateTimer(-1)));
+		return move;
+	}
+
+	private static boolean canEject(AbalonePosition position) {
+		int[] moves = new int[MoveBuffer.MAX_MOVES];
+		int count = MoveGenerator.generateMoves(position.getMine(), position.getOpponent(), moves);
+		for (int i = 0; i < count; i++) {
+			if (AbaloneMove.isEjecting(moves[i])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Plain alpha-beta over jumps, from white's point of view, without null windows.
+	 */
+	private int alphaBeta(AbalonePosition position, int depth, int alpha, int beta) {
+		if (depth == 0 || position.isGameEnd()) {
+			return heuristic.getStateValue(position);
+		}
+		int[] moves = new int[MoveBuffer.MAX_MOVES];
+		int count = MoveGenerator.generateMoves(position.getMine(), position.getOpponent(), moves);
+		if (count == 0) {
+			return heuristic.getStateValue(position);
+		}
+		for (int i = 0; i < count && alpha < beta; i++) {
+			int score = alphaBeta(
+					position.applyJumps(AbaloneMove.toJumps(moves[i], position.isWhiteTurn())),
+					depth - 1, alpha, beta);
+			if (position.isWhiteTurn()) {
+				alpha = Math.max(alpha, score);
+			} else {
+				beta = Math.min(beta, score);
+			}
+		}
+		return position.isWhiteTurn() ? alpha : beta;
+	}
+
+	/**
+	 * Plain minimax over jumps, from white's point of view, then pushes only for
+	 * {@code quiescencePlies} plies.
+	 */
+	private int minimax(AbalonePosition position, int depth, int quiescencePlies) {
+		int value = heuristic.getStateValue(position);
+		if (position.isGameEnd() || (depth == 0 && (quiescencePlies == 0
+				|| value == Integer.MAX_VALUE || value == Integer.MIN_VALUE))) {
+			return value;
+		}
+		int best = depth == 0 ? value
+				: position.isWhiteTurn() ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+		int[] moves = new int[MoveBuffer.MAX_MOVES];
+		int count = MoveGenerator.generateMoves(position.getMine(), position.getOpponent(), moves);
+		for (int i = 0; i < count; i++) {
+			if (depth == 0 && AbaloneMove.getOpponentCount(moves[i]) == 0) {
+				continue;
+			}
+			AbalonePosition next =
+					position.applyJumps(AbaloneMove.toJumps(moves[i], position.isWhiteTurn()));
+			int score = depth == 0 ? minimax(next, 0, quiescencePlies - 1)
+					: minimax(next, depth - 1, quiescencePlies);
+			best = position.isWhiteTurn() ? Math.max(best, score) : Math.min(best, score);
+		}
+		return count == 0 ? value : best;
+	}
+
+	private static TranspositionTable newTable() {
+		return new TranspositionTable(16, ReplacementPolicy.DEPTH_PREFERRED);
+	}
+}
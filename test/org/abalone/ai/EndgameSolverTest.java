@@ -0,0 +1,85 @@
+package org.abalone.ai;
+
+import static org.abalone.client.AbaloneConstants.WTurn;
+import static org.abalone.client.AbaloneConstants.initialBoard;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.abalone.client.AbaloneMove;
+import org.abalone.client.AbalonePosition;
+import org.abalone.client.AbaloneState;
+import org.abalone.client.MoveGenerator;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class EndgameSolverTest {
+
+	/** White pushes, and every black move leaves a black piece to push off. */
+	private final AbalonePosition winInTwo =
+			new AbalonePosition(1216183009921777889L, 5665097859138824L, true);
+
+	@Test
+	public void testNoPushNoWin() {
+		AbalonePosition start = AbalonePosition.fromState(new AbaloneState(WTurn,
+				Lists.newArrayList("0", "1"), initialBoard, Lists.<ArrayList<Integer>>newArrayList(),
+				null));
+		EndgameSolver solver = new EndgameSolver();
+		assertEquals(AbaloneMove.NONE, solver.findWin(start, new DateTimer(-1)));
+		assertEquals(0, solver.getNodeCount());
+		assertEquals(0, solver.getWinMoves());
+	}
+
+	@Test
+	public void testWinInTwo() {
+		assertEquals(AbaloneMove.NONE,
+				new EndgameSolver(1, -1).findWin(winInTwo, new DateTimer(-1)));
+
+		EndgameSolver solver = new EndgameSolver();
+		int win = solver.findWin(winInTwo, new DateTimer(-1));
+		assertEquals(2, solver.getWinMoves());
+		assertTrue(AbaloneMove.getOpponentCount(win) > 0);
+		assertFalse(AbaloneMove.isEjecting(win));
+
+		// Every defence loses to an ejection.
+		AbalonePosition attacked = winInTwo.applyJumps(AbaloneMove.toJumps(win, true));
+		int[] defences = new int[MoveBuffer.MAX_MOVES];
+		int count = MoveGenerator.generateMoves(attacked.getMine(), attacked.getOpponent(),
+				defences);
+		for (int i = 0; i < count; i++) {
+			assertFalse(AbaloneMove.isEjecting(defences[i]));
+			AbalonePosition defended =
+					attacked.applyJumps(AbaloneMove.toJumps(defences[i], false));
+			int ejection = new EndgameSolver(1, -1).findWin(defended, new DateTimer(-1));
+			assertTrue(AbaloneMove.isEjecting(ejection));
+		}
+
+		// Solved again from the cache.
+		assertEquals(win, solver.findWin(winInTwo, new DateTimer(-1)));
+		assertEquals(0, solver.getNodeCount());
+	}
+
+	@Test
+	public void testGivesUpAfterMaxNodes() {
+		EndgameSolver solver = new EndgameSolver(EndgameSolver.DEFAULT_MAX_MOVES, 1);
+		assertEquals(AbaloneMove.NONE, solver.findWin(winInTwo, new DateTimer(-1)));
+		assertEquals(1, solver.getNodeCount());
+	}
+
+	@Test
+	public void testSearchPlaysTheWin() {
+		EndgameSolver solver = new EndgameSolver();
+		int win = solver.findWin(winInTwo, new DateTimer(-1));
+		AlphaBetaPruning search = new AlphaBetaPruning(new HeuristicImpl(),
+				(AbaloneState) null);
+		search.setEndgameSolver(new EndgameSolver());
+		assertEquals(AbaloneMove.toJumps(win, true), search.findBestMove(
+				winInTwo.toState(Lists.newArrayList("0", "1"),
+						Lists.<ArrayList<Integer>>newArrayList()), 1, new DateTimer(-1)));
+		assertNotEquals(0, search.getNodeCount());
+	}
+}
@@ -0,0 +1,46 @@
+package org.abalone.ai;
+
+import static org.abalone.client.AbaloneConstants.WTurn;
+import static org.abalone.client.AbaloneConstants.initialBoard;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.abalone.client.AbalonePosition;
+import org.abalone.client.AbaloneState;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class HeuristicImplTest {
+
+	private final Heuristic heuristic = new HeuristicImpl();
+	private final AbalonePosition start = AbalonePosition.fromState(new AbaloneState(WTurn,
+			Lists.newArrayList("0", "1"), initialBoard, Lists.<ArrayList<Integer>>newArrayList(),
+			null));
+
+	@Test
+	public void testRepeatedCallsDoNotAccumulate() {
+		List<ArrayList<ArrayList<Integer>>> moves = heuristic.getOrderedMoves(start);
+		int value = heuristic.getStateValue(start);
+		for (int i = 0; i < 3; i++) {
+			assertEquals(moves, heuristic.getOrderedMoves(start));
+			assertEquals(value, heuristic.getStateValue(start));
+		}
+	}
+
+	@Test
+	public void testPositionAndSearchBoardAgree() {
+		SearchBoard board = new SearchBoard(start, 1);
+		int[] moves = new int[MoveBuffer.MAX_MOVES];
+		int count = heuristic.getOrderedMoves(board, moves);
+		assertEquals(heuristic.getOrderedMoves(start).size(), count);
+		assertEquals(heuristic.getStateValue(start), heuristic.getStateValue(board));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testMoveBufferCeiling() {
+		heuristic.getOrderedMoves(new SearchBoard(start, 1), new int[4]);
+	}
+}
@@ -0,0 +1,141 @@
+package org.abalone.ai;
+
+import static org.abalone.client.AbaloneConstants.WTurn;
+import static org.abalone.client.AbaloneConstants.initialBoard;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.abalone.ai.TranspositionTable.ReplacementPolicy;
+import org.abalone.client.AbaloneMove;
+import org.abalone.client.AbalonePosition;
+import org.abalone.client.AbaloneState;
+import org.abalone.client.MoveGenerator;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class LazySmpSearchTest {
+
+	private static final int DEPTH = 3;
+	private static final int PLIES = 4;
+	private static final int HELPERS = 3;
+
+	private final Heuristic heuristic = new HeuristicImpl();
+	private final SearchOptions options = new SearchOptions(0);
+
+	@Test
+	public void testFindsALegalMove() {
+		LazySmpSearch search = new LazySmpSearch(heuristic, newTable(), HELPERS, options);
+		try {
+			AbaloneState state = newState(initialPosition());
+			ArrayList<ArrayList<Integer>> move = search.findBestMove(state, DEPTH, new DateTimer(-1));
+			assertTrue(heuristic.getOrderedMoves(AbalonePosition.fromState(state)).contains(move));
+			assertTrue(search.getNodeCount() > search.getMainNodeCount());
+		} finally {
+			search.shutdown();
+		}
+	}
+
+	@Test
+	public void testMatchesSequentialSearch() {
+		AlphaBetaPruning sequential = new AlphaBetaPruning(heuristic, newTable(), null, options);
+		// Without helpers, no entry is deeper than needed at this depth: the very same moves.
+		LazySmpSearch alone = new LazySmpSearch(heuristic, newTable(), 0, options);
+		LazySmpSearch helped = new LazySmpSearch(heuristic, newTable(), HELPERS, options);
+		try {
+			AbalonePosition position = initialPosition();
+			for (int ply = 0; ply < PLIES && !position.isGameEnd(); ply++) {
+				AbaloneState state = newState(position);
+				ArrayList<ArrayList<Integer>> move =
+						sequential.findBestMove(state, DEPTH, new DateTimer(-1));
+				assertEquals(move, alone.findBestMove(state, DEPTH, new DateTimer(-1)));
+				// The helpers may change the order of moves of the same score, not the score.
+				ArrayList<ArrayList<Integer>> helpedMove =
+						helped.findBestMove(state, DEPTH, new DateTimer(-1));
+				assertEquals(minimax(position.applyJumps(move), DEPTH - 1),
+						minimax(position.applyJumps(helpedMove), DEPTH - 1));
+				position = position.applyJumps(move);
+			}
+		} finally {
+			alone.shutdown();
+			helped.shutdown();
+		}
+	}
+
+	@Test
+	public void testStopsItsHelpers() throws InterruptedException {
+		Set<Thread> before = Thread.getAllStackTraces().keySet();
+		LazySmpSearch search = new LazySmpSearch(heuristic, newTable(), HELPERS, options);
+		CountingTimer timer = new CountingTimer();
+		try {
+			search.findBestMove(newState(initialPosition()), DEPTH, timer);
+			// The helpers check the timer at every node: once findBestMove returned, nobody does.
+			long calls = timer.calls.get();
+			Thread.sleep(100);
+			assertEquals(calls, timer.calls.get());
+		} finally {
+			search.shutdown();
+		}
+		for (Thread thread : Sets.difference(Thread.getAllStackTraces().keySet(), before)) {
+			thread.join(5000);
+			assertFalse(thread.getName(), thread.isAlive());
+		}
+	}
+
+	private static class CountingTimer extends DateTimer {
+		final AtomicLong calls = new AtomicLong();
+
+		CountingTimer() {
+			super(-1);
+		}
+
+		@Override
+		public boolean didTimeout() {
+			calls.incrementAndGet();
+			return super.didTimeout();
+		}
+	}
+
+	/**
+	 * Plain minimax over jumps, from white's point of view.
+	 */
+	private int minimax(AbalonePosition position, int depth) {
+		if (depth == 0 || position.isGameEnd()) {
+			return heuristic.getStateValue(position);
+		}
+		int[] moves = new int[MoveBuffer.MAX_MOVES];
+		int count = MoveGenerator.generateMoves(position.getMine(), position.getOpponent(), moves);
+		if (count == 0) {
+			return heuristic.getStateValue(position);
+		}
+		int best = position.isWhiteTurn() ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+		for (int i = 0; i < count; i++) {
+			int score = minimax(
+					position.applyJumps(AbaloneMove.toJumps(moves[i], position.isWhiteTurn())),
+					depth - 1);
+			best = position.isWhiteTurn() ? Math.max(best, score) : Math.min(best, score);
+		}
+		return best;
+	}
+
+	private static AbalonePosition initialPosition() {
+		return AbalonePosition.fromState(new AbaloneState(WTurn, Lists.newArrayList("0", "1"),
+				initialBoard, Lists.<ArrayList<Integer>>newArrayList(), null));
+	}
+
+	private static AbaloneState newState(AbalonePosition position) {
+		List<String> playerIds = Lists.newArrayList("0", "1");
+		return position.toState(playerIds, Lists.<ArrayList<Integer>>newArrayList());
+	}
+
+	private static TranspositionTable newTable() {
+		return new TranspositionTable(16, ReplacementPolicy.DEPTH_PREFERRED);
+	}
+}
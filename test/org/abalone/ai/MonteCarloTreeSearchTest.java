@@ -0,0 +1,86 @@
+package org.abalone.ai;
+
+import static org.abalone.client.AbaloneConstants.WTurn;
+import static org.abalone.client.AbaloneConstants.initialBoard;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.abalone.client.AbaloneGeometry;
+import org.abalone.client.AbalonePosition;
+import org.abalone.client.AbaloneState;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class MonteCarloTreeSearchTest {
+
+	private final Heuristic heuristic = new HeuristicImpl();
+	private final AbaloneState start = new AbaloneState(WTurn, Lists.newArrayList("0", "1"),
+			initialBoard, Lists.<ArrayList<Integer>>newArrayList(), null);
+
+	@Test
+	public void testFindsALegalMove() {
+		MonteCarloTreeSearch search = new MonteCarloTreeSearch(heuristic, 1);
+		ArrayList<ArrayList<Integer>> move = search.findBestMove(start, 500, new DateTimer(-1));
+		assertTrue(heuristic.getOrderedMoves(AbalonePosition.fromState(start)).contains(move));
+		assertEquals(500, search.getPlayoutCount());
+		assertTrue(search.getPlayoutsPerSecond() > 0);
+	}
+
+	@Test
+	public void testFindsTheEjection() {
+		AbalonePosition position = findEjectionPosition();
+		MonteCarloTreeSearch search = new MonteCarloTreeSearch(heuristic, 2);
+		try {
+			ArrayList<ArrayList<Integer>> move = search.findBestMove(
+					position.toState(Lists.newArrayList("0", "1"),
+					Lists.<ArrayList<Integer>>newArrayList()), 300, new DateTimer(-1));
+			AbalonePosition next = position.applyJumps(move);
+			assertTrue(next.isGameEnd());
+			assertFalse(next.isEjectedWhite());
+		} finally {
+			search.shutdown();
+		}
+	}
+
+	@Test
+	public void testReusesTheTree() {
+		MonteCarloTreeSearch search = new MonteCarloTreeSearch(heuristic, 1);
+		search.findBestMove(start, 300, new DateTimer(-1));
+		search.findBestMove(start, 200, new DateTimer(-1));
+		assertEquals(500, search.getRootVisits());
+
+		// Two plies later: the subtree of that position is kept, if it was explored.
+		List<ArrayList<ArrayList<Integer>>> moves =
+				heuristic.getOrderedMoves(AbalonePosition.fromState(start));
+		AbalonePosition afterTwo = AbalonePosition.fromState(start).applyJumps(moves.get(0));
+		afterTwo = afterTwo.applyJumps(heuristic.getOrderedMoves(afterTwo).get(0));
+		search.findBestMove(afterTwo.toState(Lists.newArrayList("0", "1"),
+				Lists.<ArrayList<Integer>>newArrayList()), 100, new DateTimer(-1));
+		assertTrue(search.getRootVisits() >= 100);
+	}
+
+	/**
+	 * Two white pieces in a line behind a black piece on the edge: white wins by pushing it off.
+	 */
+	private static AbalonePosition findEjectionPosition() {
+		for (int cell = 0; cell < AbaloneGeometry.CELL_NUM; cell++) {
+			for (int direction = 0; direction < 6; direction++) {
+				int back = AbaloneGeometry.opposite(direction);
+				int first = AbaloneGeometry.neighbor(cell, back);
+				int second = first == AbaloneGeometry.NO_CELL
+						? AbaloneGeometry.NO_CELL : AbaloneGeometry.neighbor(first, back);
+				if (AbaloneGeometry.neighbor(cell, direction) == AbaloneGeometry.NO_CELL
+						&& AbaloneGeometry.ejectSquare(cell, direction) != AbaloneGeometry.NO_CELL
+						&& second != AbaloneGeometry.NO_CELL) {
+					return new AbalonePosition((1L << first) | (1L << second), 1L << cell, true);
+				}
+			}
+		}
+		throw new AssertionError("No edge cell");
+	}
+}
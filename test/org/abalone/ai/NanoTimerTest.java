@@ -0,0 +1,40 @@
+package org.abalone.ai;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class NanoTimerTest {
+
+	@Test
+	public void testNoTimeout() {
+		NanoTimer timer = new NanoTimer(-1);
+		for (int i = 0; i < 10000; i++) {
+			assertFalse(timer.didTimeout());
+		}
+		assertFalse(timer.shouldStopDeepening());
+	}
+
+	@Test
+	public void testHardDeadlineIsCheckedEveryInterval() throws InterruptedException {
+		NanoTimer timer = new NanoTimer(0, 0, 4);
+		Thread.sleep(2);
+		// The clock is only read on the 4th call.
+		assertFalse(timer.didTimeout());
+		assertFalse(timer.didTimeout());
+		assertFalse(timer.didTimeout());
+		assertTrue(timer.didTimeout());
+		// and the timeout sticks.
+		assertTrue(timer.didTimeout());
+		assertTrue(timer.shouldStopDeepening());
+	}
+
+	@Test
+	public void testSoftDeadlineBeforeHardDeadline() throws InterruptedException {
+		NanoTimer timer = new NanoTimer(0, 60000, 1);
+		Thread.sleep(2);
+		assertTrue(timer.shouldStopDeepening());
+		assertFalse(timer.didTimeout());
+	}
+}
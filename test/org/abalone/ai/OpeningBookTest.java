@@ -0,0 +1,84 @@
+package org.abalone.ai;
+
+import static org.abalone.client.AbaloneConstants.WTurn;
+import static org.abalone.client.AbaloneConstants.initialBoard;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.abalone.client.AbaloneMove;
+import org.abalone.client.AbalonePosition;
+import org.abalone.client.AbaloneState;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+
+public class OpeningBookTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final Heuristic heuristic = new HeuristicImpl();
+	private final AbaloneState state = new AbaloneState(WTurn, Lists.newArrayList("0", "1"),
+			initialBoard, Lists.<ArrayList<Integer>>newArrayList(), null);
+	private final AbalonePosition start = AbalonePosition.fromState(state);
+
+	@Test
+	public void testLookup() throws IOException {
+		int[] moves = new int[MoveBuffer.MAX_MOVES];
+		int count = heuristic.getOrderedMoves(new SearchBoard(start, 1), moves);
+		int last = moves[count - 1];
+		AbalonePosition next = start.applyJumps(AbaloneMove.toJumps(last, true));
+		OpeningBook.Builder builder = new OpeningBook.Builder()
+				.add(start, moves[0]).add(start, last).add(start, last);
+		for (int i = 0; i < 100; i++) {
+			// Positions that are not played, to have a few levels of binary search.
+			builder.add(new AbalonePosition(1L << (i % 61), 1L << ((i + 7) % 61), i < 61), 0);
+		}
+		File file = folder.newFile("test.book");
+		builder.write(file);
+
+		OpeningBook book = OpeningBook.open(file);
+		assertEquals(builder.size(), book.size());
+		assertEquals(last, book.getMove(start));
+		assertEquals(AbaloneMove.NONE, book.getMove(next));
+		// The white move is not legal for black: taken as a hash collision.
+		builder.add(next, last).write(file);
+		assertEquals(AbaloneMove.NONE, OpeningBook.open(file).getMove(next));
+
+		AlphaBetaPruning search = new AlphaBetaPruning(heuristic, state);
+		search.setOpeningBook(book);
+		assertEquals(AbaloneMove.toJumps(last, true),
+				search.findBestMove(state, 3, new DateTimer(-1)));
+		assertEquals(0, search.getNodeCount());
+	}
+
+	@Test
+	public void testSelfPlay() throws IOException {
+		OpeningBook.Builder builder = new OpeningBook.Builder();
+		OpeningBook.selfPlay(builder, heuristic, 2, 3, 1, 1);
+		File file = folder.newFile("self-play.book");
+		builder.write(file);
+		OpeningBook book = OpeningBook.open(file);
+		assertNotEquals(AbaloneMove.NONE, book.getMove(start));
+
+		AlphaBetaPruning search = new AlphaBetaPruning(heuristic, state);
+		assertEquals(search.findBestMove(state, 1, new DateTimer(-1)),
+				AbaloneMove.toJumps(book.getMove(start), true));
+	}
+
+	@Test(expected = IOException.class)
+	public void testNotABook() throws IOException {
+		File file = folder.newFile("empty.book");
+		try (FileOutputStream output = new FileOutputStream(file)) {
+			output.write(new byte[20]);
+		}
+		OpeningBook.open(file);
+	}
+}
@@ -0,0 +1,91 @@
+package org.abalone.ai;
+
+import static org.abalone.client.AbaloneConstants.WTurn;
+import static org.abalone.client.AbaloneConstants.initialBoard;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.abalone.client.AbalonePosition;
+import org.abalone.client.AbaloneState;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class PerftTest {
+
+	private final Heuristic heuristic = new HeuristicImpl();
+	private final Perft perft = new Perft(heuristic);
+	private final AbalonePosition start = AbalonePosition.fromState(new AbaloneState(WTurn,
+			Lists.newArrayList("0", "1"), initialBoard, Lists.<ArrayList<Integer>>newArrayList(),
+			null));
+
+	@Test
+	public void testInitialBoard() {
+		assertEquals(1, perft.run(start, 0).getNodes());
+		assertEquals(52, perft.run(start, 1).getNodes());
+		assertEquals(2692, perft.run(start, 2).getNodes());
+		assertEquals(148934, perft.run(start, 3).getNodes());
+	}
+
+	@Test
+	public void testReferencePositions() {
+		List<AbalonePosition> positions = getReferencePositions();
+		long[] expected = {3883, 3730, 3983};
+		for (int i = 0; i < positions.size(); i++) {
+			assertEquals(expected[i], perft.run(positions.get(i), 2).getNodes());
+			assertEquals(expected[i], countWithJumps(positions.get(i), 2));
+		}
+	}
+
+	@Test
+	public void testParallelMatchesSingleThreaded() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			assertEquals(perft.run(start, 3).getNodes(), perft.run(start, 3, pool).getNodes());
+			for (AbalonePosition position : getReferencePositions()) {
+				assertEquals(perft.run(position, 2).getNodes(),
+						perft.run(position, 2, pool).getNodes());
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Counts through the jump lists of {@link Heuristic#getOrderedMoves(AbalonePosition)} and
+	 * {@link AbalonePosition#applyJumps(List)} instead of the search board.
+	 */
+	private long countWithJumps(AbalonePosition position, int depth) {
+		if (depth == 0) {
+			return 1;
+		}
+		if (position.isGameEnd()) {
+			return 0;
+		}
+		long nodes = 0;
+		for (ArrayList<ArrayList<Integer>> jumps : heuristic.getOrderedMoves(position)) {
+			nodes += countWithJumps(position.applyJumps(jumps), depth - 1);
+		}
+		return nodes;
+	}
+
+	/**
+	 * Positions reached by always playing the n-th ordered move, so they are the same on every run:
+	 * pushes get tried first by the heuristic, which leads to contact between the two sides.
+	 */
+	private List<AbalonePosition> getReferencePositions() {
+		List<AbalonePosition> positions = Lists.newArrayList();
+		for (int n : new int[] {0, 1, 5}) {
+			AbalonePosition position = start;
+			for (int ply = 0; ply < 12 && !position.isGameEnd(); ply++) {
+				List<ArrayList<ArrayList<Integer>>> moves = heuristic.getOrderedMoves(position);
+				position = position.applyJumps(moves.get(n % moves.size()));
+			}
+			positions.add(position);
+		}
+		return positions;
+	}
+}
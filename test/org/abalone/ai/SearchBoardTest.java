@@ -0,0 +1,72 @@
+package org.abalone.ai;
+
+import static org.abalone.client.AbaloneConstants.WTurn;
+import static org.abalone.client.AbaloneConstants.initialBoard;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+
+import org.abalone.client.AbaloneMove;
+import org.abalone.client.AbalonePosition;
+import org.abalone.client.AbaloneState;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class SearchBoardTest {
+
+	private final Heuristic heuristic = new HeuristicImpl();
+
+	@Test
+	public void testMakeMoveMatchesApplyJumps() {
+		AbalonePosition start = AbalonePosition.fromState(new AbaloneState(WTurn,
+				Lists.newArrayList("0", "1"), initialBoard, Lists.<ArrayList<Integer>>newArrayList(),
+				null));
+		checkMoves(new SearchBoard(start, 8), start, 3);
+	}
+
+	@Test
+	public void testNullMovePassesTheTurn() {
+		AbalonePosition start = AbalonePosition.fromState(new AbaloneState(WTurn,
+				Lists.newArrayList("0", "1"), initialBoard, Lists.<ArrayList<Integer>>newArrayList(),
+				null));
+		SearchBoard board = new SearchBoard(start, 2);
+		board.makeNullMove();
+		AbalonePosition passed = new AbalonePosition(start.getWhite(), start.getBlack(), false);
+		assertEquals(passed, board.toPosition());
+		assertEquals(passed.getHash(), board.getHash());
+		board.unmakeMove();
+		assertEquals(start, board.toPosition());
+		assertEquals(start.getHash(), board.getHash());
+	}
+
+	private void checkMoves(SearchBoard board, AbalonePosition position, int depth) {
+		if (depth == 0) {
+			return;
+		}
+		int[] moves = new int[256];
+		int count = heuristic.getOrderedMoves(board, moves);
+		for (int i = 0; i < count; i++) {
+			AbalonePosition child =
+					position.applyJumps(AbaloneMove.toJumps(moves[i], position.isWhiteTurn()));
+			board.makeMove(moves[i]);
+			assertEquals(child, board.toPosition());
+			assertEquals(child.getHash(), board.getHash());
+			checkTerms(new SearchBoard(child, 1), board);
+			checkMoves(board, child, depth - 1);
+			board.unmakeMove();
+			assertEquals(position, board.toPosition());
+			assertEquals(position.getHash(), board.getHash());
+		}
+	}
+
+	/**
+	 * The terms updated move by move should match the ones computed from scratch.
+	 */
+	private void checkTerms(SearchBoard expected, SearchBoard board) {
+		assertEquals(expected.getPieceDifference(), board.getPieceDifference());
+		assertEquals(expected.getCenterDistance(), board.getCenterDistance());
+		assertEquals(expected.getCohesion(), board.getCohesion());
+		assertEquals(expected.getEdgeExits(), board.getEdgeExits());
+	}
+}
@@ -0,0 +1,199 @@
+package org.abalone.ai;
+
+import static org.abalone.client.AbaloneConstants.WTurn;
+import static org.abalone.client.AbaloneConstants.initialBoard;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.abalone.ai.AlphaBetaPruning.TimeoutException;
+import org.abalone.ai.TranspositionTable.ReplacementPolicy;
+import org.abalone.client.AbaloneMove;
+import org.abalone.client.AbalonePosition;
+import org.abalone.client.AbaloneState;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class SearcherTest {
+
+	private static final int DEPTH = 3;
+
+	private final Heuristic heuristic = new HeuristicImpl();
+	private final AbalonePosition initial = AbalonePosition.fromState(new AbaloneState(WTurn,
+			Lists.newArrayList("0", "1"), initialBoard, Lists.<ArrayList<Integer>>newArrayList(),
+			null));
+
+	@Test
+	public void testCutoffMoveBecomesKiller() {
+		Searcher searcher = newSearcher();
+		searcher.searchRoot(DEPTH);
+		int killer = searcher.getKillers(1)[0];
+		assertTrue(killer != AbaloneMove.NONE);
+		assertEquals(0, AbaloneMove.getOpponentCount(killer));
+	}
+
+	@Test
+	public void testKillersAreTriedFirst() {
+		Searcher searcher = newSearcher();
+		// Every move of the initial board is quiet.
+		int[] moves = new int[MoveBuffer.MAX_MOVES];
+		int count = searcher.getRootMoves(moves);
+		searcher.addCutoff(moves[5], 2, 2);
+		assertEquals(moves[5], searcher.getKillers(2)[0]);
+		searcher.addCutoff(moves[7], 2, 2);
+		assertArrayEquals(new int[] {moves[7], moves[5]}, searcher.getKillers(2));
+
+		int[] ordered = Arrays.copyOf(moves, count);
+		searcher.orderQuietMoves(ordered, count, 2);
+		assertEquals(moves[7], ordered[0]);
+		assertEquals(moves[5], ordered[1]);
+		// At another ply they are not killers: both only have the history of one cutoff, and keep
+		// the heuristic's order.
+		ordered = Arrays.copyOf(moves, count);
+		searcher.orderQuietMoves(ordered, count, 3);
+		assertEquals(moves[5], ordered[0]);
+		assertEquals(moves[7], ordered[1]);
+	}
+
+	@Test
+	public void testHistoryOrdersQuietMoves() {
+		Searcher searcher = newSearcher();
+		int[] moves = new int[MoveBuffer.MAX_MOVES];
+		int count = searcher.getRootMoves(moves);
+		// Cutoffs at another ply, so they are not killers where the moves are ordered.
+		searcher.addCutoff(moves[10], 2, 5);
+		searcher.addCutoff(moves[20], 4, 5);
+		assertEquals(4, searcher.getHistoryScore(moves[10]));
+		assertEquals(16, searcher.getHistoryScore(moves[20]));
+
+		int[] ordered = Arrays.copyOf(moves, count);
+		searcher.orderQuietMoves(ordered, count, 0);
+		assertEquals(moves[20], ordered[0]);
+		assertEquals(moves[10], ordered[1]);
+		// The others keep the heuristic's order.
+		int next = 2;
+		for (int i = 0; i < count; i++) {
+			if (i != 10 && i != 20) {
+				assertEquals(moves[i], ordered[next++]);
+			}
+		}
+	}
+
+	@Test
+	public void testBroadsideMovesHaveTheirOwnHistory() {
+		Searcher searcher = newSearcher();
+		int[] moves = new int[MoveBuffer.MAX_MOVES];
+		int count = searcher.getRootMoves(moves);
+		int broadside = AbaloneMove.NONE;
+		for (int i = 0; i < count && broadside == AbaloneMove.NONE; i++) {
+			if (AbaloneMove.isBroadside(moves[i])) {
+				broadside = moves[i];
+			}
+		}
+		assertTrue(broadside != AbaloneMove.NONE);
+		int inline = AbaloneMove.inline(AbaloneMove.getCell(broadside),
+				AbaloneMove.getDirection(broadside), AbaloneMove.getOwnCount(broadside), 0, false);
+		searcher.addCutoff(broadside, 3, 5);
+		assertEquals(9, searcher.getHistoryScore(broadside));
+		assertEquals(0, searcher.getHistoryScore(inline));
+		searcher.addCutoff(inline, 2, 5);
+		assertEquals(9, searcher.getHistoryScore(broadside));
+		assertEquals(4, searcher.getHistoryScore(inline));
+	}
+
+	@Test
+	public void testFadeHistory() {
+		Searcher searcher = newSearcher();
+		int[] moves = new int[MoveBuffer.MAX_MOVES];
+		searcher.getRootMoves(moves);
+		searcher.addCutoff(moves[3], 4, 2);
+		assertEquals(16, searcher.getHistoryScore(moves[3]));
+		searcher.fadeHistory();
+		assertEquals(8, searcher.getHistoryScore(moves[3]));
+		// A search of the same root keeps the history and the killers, a new root fades and
+		// forgets them.
+		searcher.setRoot(initial, new DateTimer(-1));
+		assertEquals(8, searcher.getHistoryScore(moves[3]));
+		assertEquals(moves[3], searcher.getKillers(2)[0]);
+		searcher.setRoot(initial.applyJumps(AbaloneMove.toJumps(moves[0], true)),
+				new DateTimer(-1));
+		assertEquals(4, searcher.getHistoryScore(moves[3]));
+		assertEquals(AbaloneMove.NONE, searcher.getKillers(2)[0]);
+	}
+
+	@Test
+	public void testOrderingDoesNotChangeResult() {
+		// One search keeps its killers and history from move to move, the other starts afresh.
+		AlphaBetaPruning learning = newSearch();
+		AbalonePosition position = initial;
+		for (int ply = 0; ply < 4 && !position.isGameEnd(); ply++) {
+			AbaloneState state = position.toState(Lists.newArrayList("0", "1"),
+					Lists.<ArrayList<Integer>>newArrayList());
+			ArrayList<ArrayList<Integer>> move =
+					learning.findBestMove(state, DEPTH, new DateTimer(-1));
+			assertEquals(move, newSearch().findBestMove(state, DEPTH, new DateTimer(-1)));
+			position = position.applyJumps(move);
+		}
+
+		Searcher trained = newSearcher();
+		trained.setRoot(position, new DateTimer(-1));
+		trained.searchRoot(DEPTH);
+		trained.setRoot(initial, new DateTimer(-1));
+		for (int depth = 1; depth <= DEPTH; depth++) {
+			assertEquals(newSearcher().searchRoot(depth), trained.searchRoot(depth));
+		}
+	}
+
+	@Test
+	public void testStoppedSearchKeepsNullMoves() throws Exception {
+		Searcher searcher = new Searcher(heuristic, newTable(), new SearchOptions(0, 2, 0, 0),
+				new AtomicBoolean());
+		Field field = Searcher.class.getDeclaredField("noNullMove");
+		field.setAccessible(true);
+		final boolean[] noNullMove = (boolean[]) field.get(searcher);
+		// Times out in the middle of the search after a null move.
+		searcher.setRoot(initial, new DateTimer(-1) {
+			@Override
+			public boolean didTimeout() {
+				for (boolean flag : noNullMove) {
+					if (flag) {
+						return true;
+					}
+				}
+				return false;
+			}
+		});
+		try {
+			searcher.searchRoot(5);
+			fail("No null move was tried");
+		} catch (TimeoutException e) {
+			// Expected.
+		}
+		for (int ply = 0; ply < noNullMove.length; ply++) {
+			assertFalse("ply " + ply, noNullMove[ply]);
+		}
+	}
+
+	private Searcher newSearcher() {
+		Searcher searcher =
+				new Searcher(heuristic, newTable(), new SearchOptions(0), new AtomicBoolean());
+		searcher.setRoot(initial, new DateTimer(-1));
+		return searcher;
+	}
+
+	private AlphaBetaPruning newSearch() {
+		return new AlphaBetaPruning(heuristic, newTable(), null, new SearchOptions(0));
+	}
+
+	private static TranspositionTable newTable() {
+		return new TranspositionTable(16, ReplacementPolicy.DEPTH_PREFERRED);
+	}
+}
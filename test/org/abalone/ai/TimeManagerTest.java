@@ -0,0 +1,109 @@
+package org.abalone.ai;
+
+import static org.abalone.client.AbaloneConstants.WTurn;
+import static org.abalone.client.AbaloneConstants.initialBoard;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.abalone.client.AbalonePosition;
+import org.abalone.client.AbaloneState;
+import org.game_api.GameApi.EndGame;
+import org.game_api.GameApi.Operation;
+import org.game_api.GameApi.SetTurn;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class TimeManagerTest {
+
+	private final TimeManager timeManager = new TimeManager(10);
+	private final AbalonePosition start = AbalonePosition.fromState(new AbaloneState(WTurn,
+			Lists.newArrayList("0", "1"), initialBoard, Lists.<ArrayList<Integer>>newArrayList(),
+			null));
+
+	@Test
+	public void testGetSecondsForTurn() {
+		List<Operation> operations = Lists.<Operation>newArrayList(new SetTurn("1", 30));
+		assertEquals(30, TimeManager.getSecondsForTurn(operations));
+		operations = Lists.<Operation>newArrayList(new EndGame("0"));
+		assertEquals(0, TimeManager.getSecondsForTurn(operations));
+	}
+
+	@Test
+	public void testQuietPositionGetsTheSmallestShare() {
+		// No piece can push another one on the initial board.
+		TimeManager.MoveTimer timer = timeManager.startMove(start, 20);
+		long hard = 20000 - TimeManager.SAFETY_MARGIN_MILLISECONDS;
+		assertEquals((long) (hard * TimeManager.QUIET_SHARE), timer.getTargetMilliseconds());
+		// The container decides: the default is used.
+		timer = timeManager.startMove(start, 0);
+		hard = 10000 - TimeManager.SAFETY_MARGIN_MILLISECONDS;
+		assertEquals((long) (hard * TimeManager.QUIET_SHARE), timer.getTargetMilliseconds());
+	}
+
+	@Test
+	public void testNoLimit() {
+		TimeManager.MoveTimer timer = new TimeManager(-1).startMove(start, 0);
+		timer.iterationFinished(1, 5, 0, 100);
+		assertFalse(timer.shouldStopDeepening());
+		assertFalse(timer.didTimeout());
+	}
+
+	@Test
+	public void testStableBestMoveHalvesTheTarget() {
+		TimeManager.MoveTimer timer = timeManager.startMove(start, 20);
+		long target = timer.getTargetMilliseconds();
+		for (int depth = 1; depth <= TimeManager.STABLE_ITERATIONS + 1; depth++) {
+			timer.iterationFinished(depth, 5, 10, depth * 10);
+		}
+		assertEquals(target / 2, timer.getTargetMilliseconds());
+	}
+
+	@Test
+	public void testChangingBestMoveExtendsTheTarget() {
+		TimeManager.MoveTimer timer = timeManager.startMove(start, 20);
+		long target = timer.getTargetMilliseconds();
+		timer.iterationFinished(1, 5, 10, 10);
+		timer.iterationFinished(2, 6, 10, 100);
+		assertEquals(target * 3 / 2, timer.getTargetMilliseconds());
+	}
+
+	@Test
+	public void testParitySwingKeepsTheTarget() {
+		// The scores of a search of the initial board, to depth 6: the best move never changes.
+		TimeManager.MoveTimer timer = timeManager.startMove(start, 20);
+		long target = timer.getTargetMilliseconds();
+		finishIterations(timer, 1728, -80000, 91000, -90000, 100000, -96000, 108000);
+		assertEquals(target / 2, timer.getTargetMilliseconds());
+	}
+
+	@Test
+	public void testScoreDropExtendsTheTarget() {
+		// A search in the middle game: at depth 6, the score drops by 30000 from depth 4.
+		TimeManager.MoveTimer timer = timeManager.startMove(start, 20);
+		long target = timer.getTargetMilliseconds();
+		finishIterations(timer, 83203, -257000, 134000, -242000, 128000, -241000);
+		assertEquals(target / 2, timer.getTargetMilliseconds());
+		finishIterations(timer, 83203, 98000);
+		assertEquals(target * 3 / 2 / 2, timer.getTargetMilliseconds());
+	}
+
+	private static void finishIterations(TimeManager.MoveTimer timer, int move, int... scores) {
+		for (int score : scores) {
+			timer.iterationFinished(0, move, score, 0);
+		}
+	}
+
+	@Test
+	public void testWinStopsDeepening() {
+		TimeManager.MoveTimer timer = timeManager.startMove(start, 20);
+		timer.iterationFinished(1, 5, 10, 10);
+		assertFalse(timer.shouldStopDeepening());
+		timer.iterationFinished(2, 5, Integer.MAX_VALUE, 100);
+		assertTrue(timer.shouldStopDeepening());
+	}
+}
@@ -0,0 +1,188 @@
+package org.abalone.ai;
+
+import static org.abalone.client.AbaloneConstants.WTurn;
+import static org.abalone.client.AbaloneConstants.initialBoard;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+
+import org.abalone.ai.TranspositionTable.ReplacementPolicy;
+import org.abalone.client.AbalonePosition;
+import org.abalone.client.AbaloneState;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class TranspositionTableTest {
+
+	private static final int SIZE_LOG2 = 4;
+	private static final long HASH = 0x123456789ABCDEF0L;
+	// The same index as HASH in a table of 2^SIZE_LOG2 entries, another position.
+	private static final long COLLIDING_HASH = HASH + (1L << SIZE_LOG2);
+	private static final int MOVE = 0x12345;
+
+	@Test
+	public void testPacking() {
+		TranspositionTable table = new TranspositionTable(SIZE_LOG2, ReplacementPolicy.ALWAYS);
+		int[] scores = {0, 1, -1, 123456789, Integer.MIN_VALUE, Integer.MAX_VALUE};
+		for (int score : scores) {
+			table.store(HASH, 5, TranspositionTable.LOWER_BOUND, score, MOVE);
+			long entry = table.probe(HASH);
+			assertEquals(score, TranspositionTable.getScore(entry));
+			assertEquals(MOVE, TranspositionTable.getMove(entry));
+			assertEquals(5, TranspositionTable.getDepth(entry));
+			assertEquals(TranspositionTable.LOWER_BOUND, TranspositionTable.getBound(entry));
+			assertEquals(0, TranspositionTable.getAge(entry));
+		}
+		table.store(HASH, 1000, TranspositionTable.EXACT, 0, TranspositionTable.NO_MOVE);
+		long entry = table.probe(HASH);
+		assertEquals(TranspositionTable.MAX_DEPTH, TranspositionTable.getDepth(entry));
+		assertEquals(TranspositionTable.NO_MOVE, TranspositionTable.getMove(entry));
+	}
+
+	@Test
+	public void testBounds() {
+		TranspositionTable table = new TranspositionTable(SIZE_LOG2, ReplacementPolicy.ALWAYS);
+		int[] bounds = {TranspositionTable.EXACT, TranspositionTable.LOWER_BOUND,
+				TranspositionTable.UPPER_BOUND};
+		for (int bound : bounds) {
+			table.store(HASH, 3, bound, -42, MOVE);
+			long entry = table.probe(HASH);
+			assertEquals(bound, TranspositionTable.getBound(entry));
+			assertEquals(-42, TranspositionTable.getScore(entry));
+		}
+	}
+
+	@Test
+	public void testMissAndClear() {
+		TranspositionTable table = new TranspositionTable(SIZE_LOG2, ReplacementPolicy.ALWAYS);
+		assertEquals(TranspositionTable.MISS, table.probe(HASH));
+		table.store(HASH, 3, TranspositionTable.EXACT, 7, MOVE);
+		table.clear();
+		assertEquals(TranspositionTable.MISS, table.probe(HASH));
+	}
+
+	@Test
+	public void testCollidingPositionIsRejected() {
+		TranspositionTable table = new TranspositionTable(SIZE_LOG2, ReplacementPolicy.ALWAYS);
+		table.store(HASH, 3, TranspositionTable.EXACT, 7, MOVE);
+		assertEquals(TranspositionTable.MISS, table.probe(COLLIDING_HASH));
+	}
+
+	@Test
+	public void testTornEntryIsRejected() throws Exception {
+		TranspositionTable table = new TranspositionTable(SIZE_LOG2, ReplacementPolicy.ALWAYS);
+		table.store(HASH, 3, TranspositionTable.EXACT, 7, MOVE);
+		long[] keys = getArray(table, "keys");
+		long[] data = getArray(table, "data");
+		int index = (int) HASH & ((1 << SIZE_LOG2) - 1);
+		long key = keys[index];
+		// Another thread wrote the data of another entry but not its key yet.
+		table.store(HASH, 4, TranspositionTable.EXACT, 8, MOVE);
+		keys[index] = key;
+		assertEquals(TranspositionTable.MISS, table.probe(HASH));
+		// Or the key but not the data.
+		table.store(HASH, 4, TranspositionTable.EXACT, 8, MOVE);
+		data[index] ^= 1;
+		assertEquals(TranspositionTable.MISS, table.probe(HASH));
+	}
+
+	@Test
+	public void testAlwaysReplaces() {
+		TranspositionTable table = new TranspositionTable(SIZE_LOG2, ReplacementPolicy.ALWAYS);
+		table.store(HASH, 9, TranspositionTable.EXACT, 7, MOVE);
+		table.store(COLLIDING_HASH, 1, TranspositionTable.EXACT, 8, MOVE);
+		assertEquals(TranspositionTable.MISS, table.probe(HASH));
+		assertEquals(8, TranspositionTable.getScore(table.probe(COLLIDING_HASH)));
+	}
+
+	@Test
+	public void testDepthPreferredKeepsDeeperEntry() {
+		TranspositionTable table =
+				new TranspositionTable(SIZE_LOG2, ReplacementPolicy.DEPTH_PREFERRED);
+		table.store(HASH, 5, TranspositionTable.EXACT, 7, MOVE);
+		table.store(COLLIDING_HASH, 4, TranspositionTable.EXACT, 8, MOVE);
+		assertEquals(7, TranspositionTable.getScore(table.probe(HASH)));
+		assertEquals(TranspositionTable.MISS, table.probe(COLLIDING_HASH));
+		// The same position is always updated, even from a shallower search.
+		table.store(HASH, 2, TranspositionTable.UPPER_BOUND, 9, MOVE);
+		assertEquals(9, TranspositionTable.getScore(table.probe(HASH)));
+		table.store(COLLIDING_HASH, 2, TranspositionTable.EXACT, 8, MOVE);
+		assertEquals(8, TranspositionTable.getScore(table.probe(COLLIDING_HASH)));
+	}
+
+	@Test
+	public void testAging() {
+		TranspositionTable table =
+				new TranspositionTable(SIZE_LOG2, ReplacementPolicy.DEPTH_PREFERRED);
+		table.store(HASH, 5, TranspositionTable.EXACT, 7, MOVE);
+		table.newSearch();
+		// Still found in the next search...
+		assertEquals(0, TranspositionTable.getAge(table.probe(HASH)));
+		// ...but replaced by a shallower entry of that search.
+		table.store(COLLIDING_HASH, 1, TranspositionTable.EXACT, 8, MOVE);
+		assertEquals(1, TranspositionTable.getAge(table.probe(COLLIDING_HASH)));
+		assertEquals(TranspositionTable.MISS, table.probe(HASH));
+		// The age wraps around after 8 searches.
+		for (int i = 0; i < 7; i++) {
+			table.newSearch();
+		}
+		table.store(HASH, 1, TranspositionTable.EXACT, 7, MOVE);
+		assertEquals(0, TranspositionTable.getAge(table.probe(HASH)));
+	}
+
+	@Test
+	public void testTwoTierKeepsBoth() {
+		TranspositionTable table = new TranspositionTable(SIZE_LOG2, ReplacementPolicy.TWO_TIER);
+		table.store(HASH, 5, TranspositionTable.EXACT, 7, MOVE);
+		// Refused by the depth-preferred slot, taken by the other one.
+		table.store(COLLIDING_HASH, 4, TranspositionTable.EXACT, 8, MOVE);
+		assertEquals(7, TranspositionTable.getScore(table.probe(HASH)));
+		assertEquals(8, TranspositionTable.getScore(table.probe(COLLIDING_HASH)));
+		// A third shallow entry replaces the always slot only.
+		long third = COLLIDING_HASH + (1L << SIZE_LOG2);
+		table.store(third, 3, TranspositionTable.EXACT, 9, MOVE);
+		assertEquals(7, TranspositionTable.getScore(table.probe(HASH)));
+		assertEquals(TranspositionTable.MISS, table.probe(COLLIDING_HASH));
+		assertEquals(9, TranspositionTable.getScore(table.probe(third)));
+		// A deeper one takes the depth-preferred slot.
+		table.store(COLLIDING_HASH, 6, TranspositionTable.EXACT, 8, MOVE);
+		assertEquals(TranspositionTable.MISS, table.probe(HASH));
+		assertEquals(8, TranspositionTable.getScore(table.probe(COLLIDING_HASH)));
+	}
+
+	@Test
+	public void testTableSavesNodes() {
+		Heuristic heuristic = new HeuristicImpl();
+		SearchOptions options = new SearchOptions(0);
+		// Two entries: hardly any position is found again.
+		AlphaBetaPruning tiny = new AlphaBetaPruning(heuristic,
+				new TranspositionTable(1, ReplacementPolicy.ALWAYS), null, options);
+		AlphaBetaPruning full = new AlphaBetaPruning(heuristic,
+				new TranspositionTable(16, ReplacementPolicy.DEPTH_PREFERRED), null, options);
+		AbalonePosition position = AbalonePosition.fromState(new AbaloneState(WTurn,
+				Lists.newArrayList("0", "1"), initialBoard, Lists.<ArrayList<Integer>>newArrayList(),
+				null));
+		long tinyNodes = 0;
+		long fullNodes = 0;
+		for (int ply = 0; ply < 3; ply++) {
+			AbaloneState state = position.toState(Lists.newArrayList("0", "1"),
+					Lists.<ArrayList<Integer>>newArrayList());
+			ArrayList<ArrayList<Integer>> move = tiny.findBestMove(state, 5, new DateTimer(-1));
+			assertEquals(move, full.findBestMove(state, 5, new DateTimer(-1)));
+			tinyNodes += tiny.getNodeCount();
+			fullNodes += full.getNodeCount();
+			position = position.applyJumps(move);
+		}
+		assertTrue(fullNodes + " nodes with the table, " + tinyNodes + " without",
+				fullNodes < tinyNodes * 9 / 10);
+	}
+
+	private static long[] getArray(TranspositionTable table, String name) throws Exception {
+		Field field = TranspositionTable.class.getDeclaredField(name);
+		field.setAccessible(true);
+		return (long[]) field.get(table);
+	}
+}
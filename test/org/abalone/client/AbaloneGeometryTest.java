@@ -0,0 +1,69 @@
+package org.abalone.client;
+
+import static org.abalone.client.AbaloneConstants.BoardColNum;
+import static org.abalone.client.AbaloneConstants.BoardRowNum;
+import static org.abalone.client.AbaloneConstants.illegalSquares;
+import static org.abalone.client.AbaloneConstants.scoreSquares;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class AbaloneGeometryTest {
+
+	@Test
+	public void testLookupsMatchSquareLists() {
+		for (int x = -1; x <= BoardRowNum; x++) {
+			for (int y = -1; y <= BoardColNum; y++) {
+				boolean illegal = illegalSquares.contains(Lists.<Integer>newArrayList(x, y));
+				boolean score = scoreSquares.contains(Lists.<Integer>newArrayList(x, y));
+				assertEquals(illegal, AbaloneGeometry.isIllegalSquare(x, y));
+				assertEquals(score, AbaloneGeometry.isScoreSquare(x, y));
+				boolean onBoard = x >= 0 && y >= 0 && x < BoardRowNum && y < BoardColNum;
+				assertEquals(onBoard && !illegal && !score, AbaloneGeometry.isPlayable(x, y));
+			}
+		}
+		assertEquals(scoreSquares.size(), AbaloneGeometry.getScoreSquareCount());
+	}
+
+	@Test
+	public void testNeighbors() {
+		for (int cell = 0; cell < AbaloneGeometry.CELL_NUM; cell++) {
+			for (int direction = 0; direction < AbalonePresenter.Direction.values().length;
+					direction++) {
+				int neighbor = AbaloneGeometry.neighbor(cell, direction);
+				if (neighbor == AbaloneGeometry.NO_CELL) {
+					int square = AbaloneGeometry.ejectSquare(cell, direction);
+					assertEquals(true, AbaloneGeometry.isScoreSquare(square / BoardColNum,
+							square % BoardColNum));
+				} else {
+					assertEquals(cell,
+							AbaloneGeometry.neighbor(neighbor, AbaloneGeometry.opposite(direction)));
+					assertFalse(neighbor == cell);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testCenterDistanceAndEdges() {
+		int[] cellsAtDistance = new int[5];
+		int edgeExits = 0;
+		for (int cell = 0; cell < AbaloneGeometry.CELL_NUM; cell++) {
+			cellsAtDistance[AbaloneGeometry.centerDistance(cell)]++;
+			edgeExits += AbaloneGeometry.edgeExits(cell);
+			assertEquals(AbaloneGeometry.centerDistance(cell) == 4,
+					AbaloneGeometry.edgeExits(cell) > 0);
+		}
+		// The rings of a hexagonal board have 1, 6, 12, 18 and 24 cells.
+		assertEquals(1, cellsAtDistance[0]);
+		assertEquals(6, cellsAtDistance[1]);
+		assertEquals(12, cellsAtDistance[2]);
+		assertEquals(18, cellsAtDistance[3]);
+		assertEquals(24, cellsAtDistance[4]);
+		// 18 sides with 2 ways out, 6 corners with 3.
+		assertEquals(18 * 2 + 6 * 3, edgeExits);
+	}
+}
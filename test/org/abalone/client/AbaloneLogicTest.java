@@ -1,21 +1,35 @@
 package org.abalone.client;
 
+import static org.abalone.client.AbaloneConstants.BOARD;
 import static org.abalone.client.AbaloneConstants.BTurn;
+import static org.abalone.client.AbaloneConstants.JUMP;
+import static org.abalone.client.AbaloneConstants.WTurn;
+import static org.abalone.client.AbaloneConstants.initialBoard;
 import static org.abalone.client.AbaloneConstants.illegalSquares;
 import static org.abalone.client.AbaloneConstants.scoreSquares;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
+import org.game_api.GameApi;
+import org.game_api.GameApi.Operation;
+import org.game_api.GameApi.Set;
+import org.game_api.GameApi.SetTurn;
+import org.game_api.GameApi.VerifyMove;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 
 public class AbaloneLogicTest {
 	private AbaloneLogic abaloneLogic;
+	private final List<String> playerIds = Lists.newArrayList("1", "2");
 	
 	@Before
 	public void setUp() {
@@ -62,4 +76,84 @@ public class AbaloneLogicTest {
 		abaloneLogic.checkJump(jumpIllegal);
 		abaloneLogic.checkJump(jumpScore);
 	}
+	
+	@Test
+	public void testEveryGeneratedMoveIsLegal() {
+		AbalonePosition start = AbalonePosition.fromState(new AbaloneState(WTurn, playerIds,
+				initialBoard, Lists.<ArrayList<Integer>>newArrayList(), null));
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int count = MoveGenerator.generateMoves(start.getMine(), start.getOpponent(), moves);
+		for (int i = 0; i < count; i++) {
+			assertNull(abaloneLogic.verify(verifyMove(AbaloneMove.toJumps(moves[i], true)))
+					.getHackerPlayerId());
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Test(expected = RuntimeException.class)
+	public void testMovingAnOpponentPieceIsIllegal() {
+		abaloneLogic.checkMoveIsLegal(verifyMove(Lists.<ArrayList<Integer>>newArrayList(
+				Lists.newArrayList(7, 7, 6, 8, 1))));
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Test(expected = RuntimeException.class)
+	public void testMovingTwoStepsIsIllegal() {
+		abaloneLogic.checkMoveIsLegal(verifyMove(Lists.<ArrayList<Integer>>newArrayList(
+				Lists.newArrayList(2, 6, 4, 6, 0))));
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Test(expected = RuntimeException.class)
+	public void testMovingFourPiecesIsIllegal() {
+		abaloneLogic.checkMoveIsLegal(verifyMove(Lists.<ArrayList<Integer>>newArrayList(
+				Lists.newArrayList(2, 12, 3, 13, 0),
+				Lists.newArrayList(2, 10, 3, 11, 0),
+				Lists.newArrayList(2, 8, 3, 9, 0),
+				Lists.newArrayList(2, 6, 3, 7, 0))));
+	}
+	
+	@Test
+	public void testJumpsInTheWrongOrderAreIllegal() {
+		AbalonePosition start = AbalonePosition.fromState(new AbaloneState(WTurn, playerIds,
+				initialBoard, Lists.<ArrayList<Integer>>newArrayList(), null));
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int count = MoveGenerator.generateMoves(start.getMine(), start.getOpponent(), moves);
+		int checked = 0;
+		for (int i = 0; i < count; i++) {
+			if (!AbaloneMove.isBroadside(moves[i]) && AbaloneMove.getOwnCount(moves[i]) > 1) {
+				List<ArrayList<Integer>> jumps = AbaloneMove.toJumps(moves[i], true);
+				// In the order of the move, it is legal.
+				abaloneLogic.checkMoveIsLegal(verifyMove(jumps));
+				// The last piece first: it lands on the next one, which then leaves an empty cell.
+				try {
+					abaloneLogic.checkMoveIsLegal(verifyMove(Lists.reverse(jumps)));
+					fail("Accepted " + Lists.reverse(jumps));
+				} catch (RuntimeException e) {
+					checked++;
+				}
+			}
+		}
+		assertTrue(checked > 0);
+	}
+	
+	/**
+	 * @return the verification of the white {@code jumps} from the initial board.
+	 */
+	private VerifyMove verifyMove(List<ArrayList<Integer>> jumps) {
+		AbaloneState lastState = new AbaloneState(WTurn, playerIds, initialBoard,
+				Lists.<ArrayList<Integer>>newArrayList(), null);
+		List<ArrayList<String>> board = lastState.applyJumpOnBoard(jumps).getBoard();
+		Map<String, Object> lastApiState = ImmutableMap.<String, Object>of(
+				BOARD, initialBoard, JUMP, Lists.<ArrayList<Integer>>newArrayList());
+		Map<String, Object> apiState = ImmutableMap.<String, Object>of(BOARD, board, JUMP, jumps);
+		List<Operation> lastMove = Lists.<Operation>newArrayList(new SetTurn("2"),
+				new Set(BOARD, board), new Set(JUMP, jumps));
+		List<Map<String, Object>> playersInfo = Lists.newArrayList();
+		for (String playerId : playerIds) {
+			playersInfo.add(ImmutableMap.<String, Object>of(GameApi.PLAYER_ID, playerId));
+		}
+		return new VerifyMove(playersInfo, apiState, lastApiState, lastMove, "1",
+				ImmutableMap.<String, Integer>of());
+	}
 }
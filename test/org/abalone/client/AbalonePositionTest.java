@@ -0,0 +1,78 @@
+package org.abalone.client;
+
+import static org.abalone.client.AbaloneConstants.BTurn;
+import static org.abalone.client.AbaloneConstants.S;
+import static org.abalone.client.AbaloneConstants.WTurn;
+import static org.abalone.client.AbaloneConstants.initialBoard;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class AbalonePositionTest {
+
+	@Test
+	public void testInitialBoardRoundTrip() {
+		AbaloneState state = new AbaloneState(WTurn, Lists.newArrayList("0", "1"),
+				initialBoard, Lists.<ArrayList<Integer>>newArrayList(), null);
+		AbalonePosition position = AbalonePosition.fromState(state);
+
+		assertEquals(14, Long.bitCount(position.getWhite()));
+		assertEquals(14, Long.bitCount(position.getBlack()));
+		assertTrue(position.isWhiteTurn());
+		assertFalse(position.isGameEnd());
+		assertEquals(initialBoard, position.toBoard());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testApplyJumpsMatchesState() {
+		List<ArrayList<Integer>> jumps = Lists.<ArrayList<Integer>>newArrayList(
+				Lists.newArrayList(7, 7, 6, 8, 1),
+				Lists.newArrayList(8, 6, 7, 7, 1));
+		AbaloneState state = new AbaloneState(BTurn, Lists.newArrayList("0", "1"),
+				initialBoard, Lists.<ArrayList<Integer>>newArrayList(), null);
+
+		AbalonePosition position = AbalonePosition.fromState(state).applyJumps(jumps);
+
+		assertEquals(state.applyJumpOnBoard(jumps).getBoard(), position.toBoard());
+		assertTrue(position.isWhiteTurn());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testEjectedPieceRoundTrip() {
+		List<ArrayList<Integer>> jumps = Lists.<ArrayList<Integer>>newArrayList(
+				Lists.newArrayList(1, 5, 0, 4, 0));
+		AbaloneState state = new AbaloneState(WTurn, Lists.newArrayList("0", "1"),
+				initialBoard, Lists.<ArrayList<Integer>>newArrayList(), null);
+
+		AbalonePosition position = AbalonePosition.fromState(state).applyJumps(jumps);
+
+		assertTrue(position.isGameEnd());
+		assertTrue(position.isEjectedWhite());
+		assertEquals(position, AbalonePosition.fromState(position.toState(
+				state.getPlayerIds(), jumps)));
+	}
+
+	@Test
+	public void testEjectSquaresAreScoreSquares() {
+		for (int cell = 0; cell < AbaloneGeometry.CELL_NUM; cell++) {
+			for (int direction = 0; direction < 6; direction++) {
+				int square = AbaloneGeometry.ejectSquare(cell, direction);
+				if (AbaloneGeometry.neighbor(cell, direction) == AbaloneGeometry.NO_CELL) {
+					assertEquals(S, initialBoard.get(square / AbaloneConstants.BoardColNum)
+							.get(square % AbaloneConstants.BoardColNum));
+				} else {
+					assertEquals(AbaloneGeometry.NO_CELL, square);
+				}
+			}
+		}
+	}
+}
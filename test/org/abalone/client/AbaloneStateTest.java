@@ -11,6 +11,9 @@ import static org.abalone.client.AbaloneConstants.W;
 import static org.abalone.client.AbaloneConstants.WTurn;
 import static org.abalone.client.AbaloneConstants.initialBoard;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
@@ -123,6 +126,54 @@ public class AbaloneStateTest {
 		assertEquals(abaloneState1, abaloneState2);
 	}
 	
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testHashFollowsTheJumps() {
+		AbaloneState startState = new AbaloneState(WTurn, Lists.newArrayList("0", "1"), 
+				AbaloneConstants.initialBoard, Lists.<ArrayList<Integer>>newArrayList(), null);
+		assertEquals(AbalonePosition.fromState(startState).getHash(), startState.getHash());
+		
+		List<ArrayList<Integer>> jumps = Lists.<ArrayList<Integer>>newArrayList(
+				Lists.newArrayList(7, 7, 6, 8, 1), 
+				Lists.newArrayList(8, 6, 7, 7, 1));
+		AbaloneState endState = startState.applyJumpOnBoard(jumps);
+		AbaloneState rebuiltState = new AbaloneState(WTurn, Lists.newArrayList("0", "1"), 
+				endState.getBoard(), jumps, null);
+		assertEquals(rebuiltState.getHash(), endState.getHash());
+		assertEquals(rebuiltState.hashCode(), endState.hashCode());
+		assertEquals(rebuiltState, endState);
+		assertFalse(startState.getHash() == endState.getHash());
+		assertFalse(startState.equals(endState));
+		
+		AbaloneState blackTurnState = new AbaloneState(BTurn, Lists.newArrayList("0", "1"), 
+				AbaloneConstants.initialBoard, Lists.<ArrayList<Integer>>newArrayList(), null);
+		assertFalse(startState.getHash() == blackTurnState.getHash());
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testDerivedStateSharesUnchangedRows() {
+		AbaloneState startState = new AbaloneState(WTurn, Lists.newArrayList("0", "1"), 
+				AbaloneConstants.initialBoard, Lists.<ArrayList<Integer>>newArrayList(), null);
+		List<ArrayList<String>> startRows = Lists.newArrayList(startState.getBoard());
+		List<String> startRow7 = Lists.newArrayList(startState.getBoard().get(7));
+		AbaloneState endState = startState.applyJumpOnBoard(Lists.<ArrayList<Integer>>newArrayList(
+				Lists.newArrayList(7, 7, 6, 8, 1), 
+				Lists.newArrayList(8, 6, 7, 7, 1)));
+		
+		for (int x = 0; x < AbaloneConstants.BoardRowNum; x++) {
+			if (x >= 6 && x <= 8) {
+				assertNotSame(startState.getBoard().get(x), endState.getBoard().get(x));
+			} else {
+				assertSame(startState.getBoard().get(x), endState.getBoard().get(x));
+			}
+		}
+		// The start state is unchanged.
+		assertEquals(startRows, startState.getBoard());
+		assertEquals(startRow7, startState.getBoard().get(7));
+		assertEquals(B, endState.getBoard().get(7).get(7));
+	}
+	
 	@SuppressWarnings("unchecked")
 	@Test
 	public void testGameApiState2AbaloneState() {
@@ -140,4 +191,25 @@ public class AbaloneStateTest {
 				AbaloneState.gameApiState2AbaloneState(gameApiState, turn, playerIds)
 		);
 	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testJumpTraceRingBuffer() {
+		AbaloneState startState = new AbaloneState(WTurn, Lists.newArrayList("0", "1"), 
+				AbaloneConstants.initialBoard, Lists.<ArrayList<Integer>>newArrayList(), null);
+		JumpTrace.RingBuffer ringBuffer = JumpTrace.enable(2);
+		try {
+			startState.applyJumpOnBoard(Lists.<ArrayList<Integer>>newArrayList(
+					Lists.newArrayList(3, 5, 4, 6, 0)));
+			startState.applyJumpOnBoard(Lists.<ArrayList<Integer>>newArrayList(
+					Lists.newArrayList(3, 7, 4, 8, 0)));
+			startState.applyJumpOnBoard(Lists.<ArrayList<Integer>>newArrayList(
+					Lists.newArrayList(3, 7, 4, 6, 0)));
+		} finally {
+			JumpTrace.disable();
+		}
+		
+		assertEquals(3, ringBuffer.getRecordedCount());
+		assertEquals("#1 WP: 3,7->4,8(0)\n#2 WP: 3,7->4,6(0)\n", ringBuffer.dump());
+	}
 }
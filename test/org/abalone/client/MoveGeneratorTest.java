@@ -0,0 +1,71 @@
+package org.abalone.client;
+
+import static org.abalone.client.AbaloneConstants.WTurn;
+import static org.abalone.client.AbaloneConstants.initialBoard;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class MoveGeneratorTest {
+
+	private final AbalonePosition start = AbalonePosition.fromState(new AbaloneState(WTurn,
+			Lists.newArrayList("0", "1"), initialBoard, Lists.<ArrayList<Integer>>newArrayList(),
+			null));
+
+	@Test
+	public void testInitialMoves() {
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int count = MoveGenerator.generateMoves(start.getMine(), start.getOpponent(), moves);
+		int broadside = 0;
+		for (int i = 0; i < count; i++) {
+			if (AbaloneMove.isBroadside(moves[i])) {
+				broadside++;
+			}
+		}
+		assertEquals(52, count);
+		assertEquals(8, broadside);
+	}
+
+	@Test
+	public void testMovesLeadToDistinctPositions() {
+		AbalonePosition position = start;
+		for (int ply = 0; ply < 20; ply++) {
+			int[] moves = new int[MoveGenerator.MAX_MOVES];
+			int count =
+					MoveGenerator.generateMoves(position.getMine(), position.getOpponent(), moves);
+			Set<AbalonePosition> children = Sets.newHashSet();
+			for (int i = 0; i < count; i++) {
+				AbalonePosition child =
+						position.applyJumps(AbaloneMove.toJumps(moves[i], position.isWhiteTurn()));
+				assertEquals(Long.bitCount(position.getMine()), Long.bitCount(child.getOpponent()));
+				children.add(child);
+			}
+			assertEquals(count, children.size());
+			// Play the last move, usually a broadside one, to reach varied positions.
+			position = position.applyJumps(
+					AbaloneMove.toJumps(moves[count - 1], position.isWhiteTurn()));
+			assertTrue(!position.isGameEnd());
+		}
+	}
+
+	@Test
+	public void testBroadsideJumps() {
+		int[] moves = new int[MoveGenerator.MAX_MOVES];
+		int count =
+				MoveGenerator.generateBroadsideMoves(start.getMine(), start.getOpponent(), moves, 0);
+		for (int i = 0; i < count; i++) {
+			ArrayList<ArrayList<Integer>> jumps = AbaloneMove.toJumps(moves[i], true);
+			assertEquals(AbaloneMove.getOwnCount(moves[i]), jumps.size());
+			for (ArrayList<Integer> jump : jumps) {
+				assertEquals(AbaloneConstants.E, initialBoard.get(jump.get(2)).get(jump.get(3)));
+			}
+		}
+	}
+}